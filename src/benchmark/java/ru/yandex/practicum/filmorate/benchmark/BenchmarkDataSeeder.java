@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmCache;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendSuggestions;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Заполняет пустую базу синтетическими фильмами, пользователями, лайками и дружбой.
+ * Лайки распределены неравномерно: небольшая часть фильмов собирает большинство лайков, как в реальном топе.
+ */
+public class BenchmarkDataSeeder {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int GENRES = 6;
+    private static final int MPA = 5;
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEARS = 75;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public BenchmarkDataSeeder(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    public static void seed(ApplicationContext context, int films, int users, int likesPerUser, int friendsPerUser) {
+        new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), 42).seed(films, users, likesPerUser, friendsPerUser);
+        // индексы строятся при старте по пустой базе, поэтому перечитываем их после заполнения
+        context.getBean(PopularFilmsIndex.class).reload();
+        context.getBean(UserLikesIndex.class).reload();
+        context.getBean(FriendGraphIndex.class).reload();
+        context.getBean(FilmSearchIndex.class).reload();
+        context.getBean(FriendSuggestions.class).invalidateAll();
+        context.getBean(FilmCache.class).invalidateAll();
+    }
+
+    public void seed(int films, int users, int likesPerUser, int friendsPerUser) {
+        insertUsers(users);
+        insertFilms(films);
+        insertFilmGenres(films);
+        insertLikes(films, users, likesPerUser);
+        insertFriendships(users, friendsPerUser);
+        jdbcTemplate.update("UPDATE films f SET likes_count = " +
+                "(SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.film_id)");
+    }
+
+    private void insertUsers(int users) {
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{"user" + i, "user" + i + "@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1)),
+                    "User " + i});
+            rows = flushIfFull("INSERT INTO users(login, email, birthday, name) VALUES (?, ?, ?, ?)", rows);
+        }
+        flush("INSERT INTO users(login, email, birthday, name) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    private void insertFilms(int films) {
+        String query = "INSERT INTO films(name, description, releaseDate, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 1; i <= films; i++) {
+            LocalDate releaseDate = LocalDate.of(FIRST_YEAR + random.nextInt(YEARS), 1 + random.nextInt(12), 1);
+            rows.add(new Object[]{"Film " + i, "Description of film " + i, Date.valueOf(releaseDate),
+                    60 + random.nextInt(120), 1 + random.nextInt(MPA)});
+            rows = flushIfFull(query, rows);
+        }
+        flush(query, rows);
+    }
+
+    private void insertFilmGenres(int films) {
+        String query = "INSERT INTO film_genre(film_id, genre_id) VALUES (?, ?)";
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int first = 1 + random.nextInt(GENRES);
+            rows.add(new Object[]{filmId, first});
+            if (random.nextBoolean()) {
+                rows.add(new Object[]{filmId, first % GENRES + 1});
+            }
+            rows = flushIfFull(query, rows);
+        }
+        flush(query, rows);
+    }
+
+    private void insertLikes(int films, int users, int likesPerUser) {
+        String query = "INSERT INTO film_likes(film_id, user_id) VALUES (?, ?)";
+        int perUser = Math.min(likesPerUser, films);
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> liked = new HashSet<>();
+            while (liked.size() < perUser) {
+                // куб равномерной величины смещает выбор к фильмам с маленькими id
+                double skewed = Math.pow(random.nextDouble(), 3);
+                liked.add(1 + (int) (skewed * films));
+            }
+            for (Integer filmId : liked) {
+                rows.add(new Object[]{filmId, userId});
+            }
+            rows = flushIfFull(query, rows);
+        }
+        flush(query, rows);
+    }
+
+    private void insertFriendships(int users, int friendsPerUser) {
+        String query = "INSERT INTO friendship(user_id, friend_id) VALUES (?, ?)";
+        int perUser = Math.min(friendsPerUser, users - 1);
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> friends = new HashSet<>();
+            while (friends.size() < perUser) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    friends.add(friendId);
+                }
+            }
+            for (Integer friendId : friends) {
+                rows.add(new Object[]{userId, friendId});
+            }
+            rows = flushIfFull(query, rows);
+        }
+        flush(query, rows);
+    }
+
+    private List<Object[]> flushIfFull(String query, List<Object[]> rows) {
+        if (rows.size() < CHUNK_SIZE) {
+            return rows;
+        }
+        flush(query, rows);
+        return new ArrayList<>(CHUNK_SIZE);
+    }
+
+    private void flush(String query, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(query, rows);
+        }
+    }
+}
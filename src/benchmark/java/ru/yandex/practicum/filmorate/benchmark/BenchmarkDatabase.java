@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.Map;
+
+/**
+ * Общий для всех потоков контекст Spring без веб-сервера поверх in-memory H2, заполненной {@link BenchmarkDataSeeder}.
+ * Размеры данных задаются параметрами JMH, например {@code -p films=100000 -p users=20000}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    @Param("10000")
+    public int films;
+
+    @Param("5000")
+    public int users;
+
+    @Param("20")
+    public int likesPerUser;
+
+    @Param("20")
+    public int friendsPerUser;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start(films, users, likesPerUser, friendsPerUser);
+    }
+
+    static ConfigurableApplicationContext start(int films, int users, int likesPerUser, int friendsPerUser) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled", "false",
+                        "logging.level.root", "WARN",
+                        "logging.level.org.zalando.logbook", "WARN",
+                        "logging.level.org.springframework.web", "WARN"))
+                .run();
+        BenchmarkDataSeeder.seed(context, films, users, likesPerUser, friendsPerUser);
+        return context;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmCache;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmDbStorage;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов: полный список, топ из индекса и из базы, топ с фильтрами, фильм по id из кэша и из базы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FilmReadBenchmark {
+
+    private static final int GENRE_ID = 2;
+    private static final int YEAR = 2000;
+
+    private FilmDbStorage filmDbStorage;
+    private FilmCache filmCache;
+    private int films;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        filmDbStorage = database.bean(FilmDbStorage.class);
+        filmCache = database.bean(FilmCache.class);
+        films = database.films;
+        System.out.println(filmDbStorage.explainPopularFilms(10, GENRE_ID, YEAR));
+    }
+
+    @Benchmark
+    public Collection<Film> getAllFilms() {
+        return filmDbStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularFromIndex() {
+        return filmDbStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularBeyondIndexDepth() {
+        return filmDbStorage.getPopularFilms(2000);
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularByGenreAndYear() {
+        return filmDbStorage.getPopularFilms(10, GENRE_ID, YEAR);
+    }
+
+    @Benchmark
+    public Film findFilmByIdCached() {
+        return filmDbStorage.findFilmById(randomFilmId());
+    }
+
+    @Benchmark
+    public Film findFilmByIdUncached() {
+        long id = randomFilmId();
+        filmCache.invalidate(id);
+        return filmDbStorage.findFilmById(id);
+    }
+
+    private long randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmDbStorage;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный список фильмов на каталогах от тысячи до миллиона фильмов: время должно расти линейно с размером каталога.
+ * Пользователей и лайков немного, чтобы заполнение базы не занимало большую часть прогона.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FilmScalingBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int films;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmDbStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(films, 1000, 5, 5);
+        filmDbStorage = context.getBean(FilmDbStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> getAllFilms() {
+        return filmDbStorage.getAllFilms();
+    }
+}
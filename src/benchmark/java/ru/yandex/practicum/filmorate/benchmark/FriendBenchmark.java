@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DAO.UserDbStorage;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья и рекомендации друзей для случайных пар пользователей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FriendBenchmark {
+
+    private UserDbStorage userDbStorage;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        userDbStorage = database.bean(UserDbStorage.class);
+        users = database.users;
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userDbStorage.getCommonFriends(1L + random.nextInt(users), 1L + random.nextInt(users));
+    }
+
+    @Benchmark
+    public Collection<User> getFriendSuggestions() {
+        return userDbStorage.getFriendSuggestions(1L + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+}
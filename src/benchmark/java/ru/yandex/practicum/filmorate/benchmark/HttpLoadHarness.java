@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Нагрузочный прогон через HTTP: поднимает приложение на случайном порту поверх заполненной файловой H2
+ * и гоняет смесь запросов из множества клиентов (80% чтений, 15% лайков, 5% операций с друзьями).
+ * Параметры передаются системными свойствами, например {@code -Dload.clients=200 -Dload.threads=virtual}.
+ * Итог печатается в консоль и сохраняется в JSON, который удобно сравнивать между сборками.
+ */
+public class HttpLoadHarness {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int films = Integer.getInteger("load.films", 10000);
+    private final int users = Integer.getInteger("load.users", 5000);
+    private final int likesPerUser = Integer.getInteger("load.likesPerUser", 20);
+    private final int friendsPerUser = Integer.getInteger("load.friendsPerUser", 20);
+    private final int clients = Integer.getInteger("load.clients", 100);
+    private final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+    private final int durationSeconds = Integer.getInteger("load.durationSeconds", 30);
+    private final String threads = System.getProperty("load.threads", "platform");
+    private final String profiles = System.getProperty("load.profiles", "");
+    private final Path databaseDir = Path.of(System.getProperty("load.databaseDir", "target/loadtest"));
+    private final Path output = Path.of(System.getProperty("load.output",
+            "target/loadtest/summary-" + threads + (profiles.isEmpty() ? "" : "-" + profiles) + ".json"));
+
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        new HttpLoadHarness().run();
+    }
+
+    private void run() throws Exception {
+        recreateDatabaseDir();
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "server.port", "0",
+                "spring.threads.virtual.enabled", String.valueOf("virtual".equals(threads)),
+                "spring.datasource.url", "jdbc:h2:file:" + databaseDir.toAbsolutePath().resolve("filmorate"),
+                "spring.h2.console.enabled", "false"));
+        if (profiles.isEmpty()) {
+            properties.put("logging.level.root", "WARN");
+            properties.put("logging.level.org.zalando.logbook", "WARN");
+            properties.put("logging.level.org.springframework.web", "WARN");
+        }
+        // с явно заданными профилями логирование остается как в них, так можно сравнить default и prod
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .profiles(profiles.isEmpty() ? new String[0] : profiles.split(","))
+                .properties(properties)
+                .run();
+        try {
+            BenchmarkDataSeeder.seed(context, films, users, likesPerUser, friendsPerUser);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+            httpClient = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(REQUEST_TIMEOUT)
+                    .build();
+
+            System.out.printf("Прогрев %d с, клиентов: %d, потоки: %s%n", warmupSeconds, clients, threads);
+            drive(warmupSeconds);
+            System.out.printf("Замер %d с%n", durationSeconds);
+            Map<String, LatencySamples> results = drive(durationSeconds);
+            report(results);
+        } finally {
+            context.close();
+        }
+    }
+
+    private Map<String, LatencySamples> drive(int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<Map<String, LatencySamples>>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> runClient(deadline)));
+            }
+        }
+        Map<String, LatencySamples> merged = new TreeMap<>();
+        for (Future<Map<String, LatencySamples>> future : futures) {
+            future.get().forEach((endpoint, samples) ->
+                    merged.computeIfAbsent(endpoint, e -> new LatencySamples()).merge(samples));
+        }
+        return merged;
+    }
+
+    private Map<String, LatencySamples> runClient(long deadline) {
+        Map<String, LatencySamples> samples = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            double roll = random.nextDouble();
+            long filmId = hotFilmId(random);
+            long userId = 1 + random.nextInt(users);
+            long otherId = 1 + random.nextInt(users);
+            if (roll < 0.40) {
+                call(samples, "GET /films/popular", "GET", "/films/popular?count=10");
+            } else if (roll < 0.80) {
+                call(samples, "GET /films/{id}", "GET", "/films/" + filmId);
+            } else if (roll < 0.90) {
+                call(samples, "PUT /films/{id}/like/{userId}", "PUT", "/films/" + filmId + "/like/" + userId);
+            } else if (roll < 0.95) {
+                call(samples, "DELETE /films/{id}/like/{userId}", "DELETE", "/films/" + filmId + "/like/" + userId);
+            } else if (roll < 0.975 && userId != otherId) {
+                call(samples, "PUT /users/{id}/friends/{friendId}", "PUT", "/users/" + userId + "/friends/" + otherId);
+            } else {
+                call(samples, "GET /users/{id}/friends/common/{otherId}", "GET",
+                        "/users/" + userId + "/friends/common/" + otherId);
+            }
+        }
+        return samples;
+    }
+
+    private long hotFilmId(ThreadLocalRandom random) {
+        // как и при заполнении, обращения смещены к небольшой группе популярных фильмов
+        return 1 + (long) (Math.pow(random.nextDouble(), 3) * films);
+    }
+
+    private void call(Map<String, LatencySamples> samples, String endpoint, String method, String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        boolean error;
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            error = response.statusCode() >= 400;
+        } catch (IOException e) {
+            error = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        samples.computeIfAbsent(endpoint, e -> new LatencySamples()).record(System.nanoTime() - start, error);
+    }
+
+    private void report(Map<String, LatencySamples> results) throws IOException {
+        long total = 0;
+        long errors = 0;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%-45s %10s %10s %10s %10s %10s %8s%n", "endpoint", "count", "rps", "p50 ms", "p99 ms",
+                "p999 ms", "errors");
+        for (Map.Entry<String, LatencySamples> entry : results.entrySet()) {
+            LatencySamples samples = entry.getValue();
+            total += samples.count();
+            errors += samples.errors();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", samples.count());
+            summary.put("throughput", (double) samples.count() / durationSeconds);
+            summary.put("p50Ms", samples.percentileMs(50));
+            summary.put("p99Ms", samples.percentileMs(99));
+            summary.put("p999Ms", samples.percentileMs(99.9));
+            summary.put("errorRate", samples.count() == 0 ? 0 : (double) samples.errors() / samples.count());
+            endpoints.put(entry.getKey(), summary);
+            System.out.printf("%-45s %10d %10.1f %10.2f %10.2f %10.2f %8d%n", entry.getKey(), samples.count(),
+                    summary.get("throughput"), summary.get("p50Ms"), summary.get("p99Ms"), summary.get("p999Ms"),
+                    samples.errors());
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("threads", threads);
+        summary.put("profiles", profiles);
+        summary.put("clients", clients);
+        summary.put("films", films);
+        summary.put("users", users);
+        summary.put("durationSeconds", durationSeconds);
+        summary.put("totalRequests", total);
+        summary.put("throughput", (double) total / durationSeconds);
+        summary.put("errorRate", total == 0 ? 0 : (double) errors / total);
+        summary.put("endpoints", endpoints);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), summary);
+        System.out.printf("Всего запросов: %d, rps: %.1f, ошибок: %d. Итог записан в %s%n",
+                total, (double) total / durationSeconds, errors, output);
+    }
+
+    private void recreateDatabaseDir() throws IOException {
+        Files.createDirectories(databaseDir);
+        try (var files = Files.list(databaseDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().startsWith("filmorate")).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Задержки одного эндпоинта в наносекундах. Каждый клиентский поток пишет в свой экземпляр,
+ * после прогона экземпляры объединяются через {@link #merge(LatencySamples)}.
+ */
+public class LatencySamples {
+
+    private long[] latencies = new long[1024];
+    private int size;
+    private long errors;
+
+    public void record(long latencyNanos, boolean error) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    public void merge(LatencySamples other) {
+        if (size + other.size > latencies.length) {
+            latencies = Arrays.copyOf(latencies, size + other.size);
+        }
+        System.arraycopy(other.latencies, 0, latencies, size, other.size);
+        size += other.size;
+        errors += other.errors;
+    }
+
+    public int count() {
+        return size;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    public double percentileMs(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))] / 1_000_000.0;
+    }
+}
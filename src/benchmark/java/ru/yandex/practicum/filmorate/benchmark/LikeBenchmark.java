@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAO.LikeDbStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайк и снятие лайка из нескольких потоков на небольшом наборе популярных фильмов.
+ * Лайки ставят отдельные пользователи без лайков из заполнения, поэтому каждая пара операций
+ * действительно добавляет и удаляет строку и оставляет данные неизменными, итерации сравнимы между собой.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class LikeBenchmark {
+
+    @Param("10")
+    public int hotFilms;
+
+    @Param("1000")
+    public int likeUsers;
+
+    private LikeDbStorage likeDbStorage;
+    private Film[] films;
+    private long firstLikeUser;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        likeDbStorage = database.bean(LikeDbStorage.class);
+        FilmDbStorage filmDbStorage = database.bean(FilmDbStorage.class);
+        films = new Film[hotFilms];
+        for (int i = 0; i < hotFilms; i++) {
+            films[i] = filmDbStorage.findFilmById((long) i + 1);
+        }
+        JdbcTemplate jdbcTemplate = database.bean(JdbcTemplate.class);
+        firstLikeUser = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Long.class) + 1;
+        List<Object[]> rows = new ArrayList<>(likeUsers);
+        for (int i = 0; i < likeUsers; i++) {
+            rows.add(new Object[]{"liker" + i, "liker" + i + "@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users(login, email, birthday) VALUES (?, ?, ?)", rows);
+    }
+
+    @Benchmark
+    public Film likeAndUnlike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Film film = films[random.nextInt(films.length)];
+        Long userId = firstLikeUser + random.nextInt(likeUsers);
+        likeDbStorage.likeTheFilm(film, userId);
+        return likeDbStorage.deleteLike(film, userId);
+    }
+}
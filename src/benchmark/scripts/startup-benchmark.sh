@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Замер времени до первого успешного ответа и RSS процесса после него для разных вариантов запуска.
+# Запуск из корня проекта: src/benchmark/scripts/startup-benchmark.sh [число прогонов]
+# Приложение стартует с classpath из target/classes и зависимостей, а не из fat jar:
+# так классы грузит системный загрузчик и они попадают в CDS-архив.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+START_TIMEOUT_S=${START_TIMEOUT_S:-120}
+OUT=target/startup
+mkdir -p "$OUT"
+
+mvn -q -B -P aot -DskipTests package dependency:build-classpath -Dmdep.outputFile="$OUT/classpath.txt"
+CP="target/classes:$(cat "$OUT/classpath.txt")"
+MAIN=ru.yandex.practicum.filmorate.FilmorateApplication
+COMMON=(-Dserver.port="$PORT" -Dspring.datasource.url="jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1")
+
+# обучающий запуск для CDS: контекст поднимается и приложение сразу завершается
+java -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dspring.context.exit=onRefresh -Dspring.profiles.active=lean \
+    -Dspring.aot.enabled=true "${COMMON[@]}" -cp "$CP" "$MAIN" > "$OUT/cds-training.log" 2>&1 || true
+
+measure() {
+    local name=$1
+    shift
+    local total_ms=0 total_rss=0
+    for ((i = 1; i <= RUNS; i++)); do
+        local start
+        start=$(date +%s%N)
+        java "$@" "${COMMON[@]}" -cp "$CP" "$MAIN" > "$OUT/$name.log" 2>&1 &
+        local pid=$!
+        local deadline=$(( $(date +%s) + START_TIMEOUT_S ))
+        until curl -sf "http://localhost:$PORT/genres" > /dev/null; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$name: процесс завершился до первого ответа, см. $OUT/$name.log" >&2
+                exit 1
+            fi
+            if (( $(date +%s) >= deadline )); then
+                echo "$name: нет ответа за ${START_TIMEOUT_S} с, см. $OUT/$name.log" >&2
+                kill "$pid"
+                wait "$pid" || true
+                exit 1
+            fi
+            sleep 0.01
+        done
+        local elapsed_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+        local rss_kb
+        rss_kb=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+        kill "$pid"
+        wait "$pid" || true
+        total_ms=$((total_ms + elapsed_ms))
+        total_rss=$((total_rss + rss_kb))
+    done
+    printf '%-20s %12d %12d\n' "$name" $((total_ms / RUNS)) $((total_rss / RUNS / 1024))
+}
+
+printf '%-20s %12s %12s\n' "mode" "first req ms" "RSS MB"
+measure default
+measure lean -Dspring.profiles.active=lean
+measure lean-aot -Dspring.profiles.active=lean -Dspring.aot.enabled=true
+measure lean-aot-cds -Dspring.profiles.active=lean -Dspring.aot.enabled=true -XX:SharedArchiveFile="$OUT/app.jsa"
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreads;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * В режиме виртуальных потоков оборачивает пул соединений в {@link ConcurrencyLimitedDataSource}.
+ * По умолчанию лимит на единицу меньше числа потоков-носителей (но не меньше одного), чтобы хотя бы один носитель
+ * оставался свободным для остальной работы. Лимит можно задать через filmorate.db.max-concurrent-queries,
+ * но значение больше размера пула Hikari ничего не ограничивает.
+ * С платформенными потоками число запросов к базе и так ограничено пулом потоков Tomcat.
+ */
+@Component
+@Slf4j
+@ConditionalOnThreads(Threading.VIRTUAL)
+public class DataSourceGuardPostProcessor implements BeanPostProcessor {
+
+    private final Environment environment;
+
+    public DataSourceGuardPostProcessor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+            return bean;
+        }
+        int maxConcurrent = environment.getProperty("filmorate.db.max-concurrent-queries", Integer.class,
+                defaultLimit());
+        long acquireTimeoutMs = environment.getProperty("filmorate.db.acquire-timeout-ms", Long.class, 5000L);
+        log.info("Доступ к базе ограничен {} одновременными соединениями", maxConcurrent);
+        return new ConcurrencyLimitedDataSource(dataSource, maxConcurrent, acquireTimeoutMs);
+    }
+
+    private static int defaultLimit() {
+        // планировщик виртуальных потоков по умолчанию держит по носителю на ядро
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        return Math.max(1, carriers - 1);
+    }
+}
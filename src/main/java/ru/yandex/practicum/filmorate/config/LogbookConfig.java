@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+@Configuration
+public class LogbookConfig {
+
+    /**
+     * Заменяет условие Logbook по умолчанию: запросы к actuator не логируются,
+     * остальные логируются с вероятностью filmorate.logbook.sample-rate.
+     */
+    @Bean
+    public Predicate<HttpRequest> requestCondition(@Value("${filmorate.logbook.sample-rate:1.0}") double sampleRate) {
+        return request -> !request.getPath().startsWith("/actuator")
+                && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает пул соединений в {@link QueryCountingDataSource}.
+ */
+@Component
+public class QueryCountingPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<QueryMetrics> queryMetrics;
+
+    public QueryCountingPostProcessor(ObjectProvider<QueryMetrics> queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof QueryCountingDataSource) {
+            return bean;
+        }
+        return new QueryCountingDataSource(dataSource, queryMetrics);
+    }
+}
@@ -1,24 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CacheStatistics;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularResponseCache;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MIN_YEAR = 1895;
+    private static final int MAX_YEAR = 9999;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final PopularResponseCache popularResponseCache;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper,
+                          PopularResponseCache popularResponseCache) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.popularResponseCache = popularResponseCache;
     }
 
     @PostMapping
@@ -27,12 +51,67 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<Film> createAll(@RequestBody List<Film> films) {
+        log.info("Получен запрос на создание пакета из {} фильмов", films.size());
+        return filmService.createAll(films);
+    }
+
     @GetMapping
     public Collection<Film> getAllFilms() {
         log.info("Получен запрос на получение списка всех фильмов");
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    public CursorPage<Film> getFilmsPage(@RequestParam(name = "after", required = false) String after,
+                                         @RequestParam(name = "limit") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            log.warn("Значение поля limit должно быть от 1 до {}", MAX_PAGE_SIZE);
+            throw new ValidationException("Значение поля limit должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.info("Получен запрос на получение страницы из {} фильмов после курсора {}", limit, after);
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms(
+            @RequestParam(name = "format", defaultValue = "json") String format) {
+        boolean ndjson = format.equals("ndjson");
+        if (!ndjson && !format.equals("json")) {
+            log.warn("Неизвестный формат выгрузки {}", format);
+            throw new ValidationException("Формат выгрузки должен быть json или ndjson");
+        }
+        log.info("Получен запрос на выгрузку каталога фильмов в формате {}", format);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                if (ndjson) {
+                    // по умолчанию Jackson ставит пробел перед каждым корневым значением, кроме первого
+                    generator.setRootValueSeparator(null);
+                } else {
+                    generator.writeStartArray();
+                }
+                filmService.exportFilms(film -> {
+                    try {
+                        writer.writeValue(generator, film);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @PutMapping
     public Film updateFilm(@RequestBody Film newFilm) {
         log.info("Получен запрос на обновление фильма {}", newFilm);
@@ -40,11 +119,33 @@ public class FilmController {
     }
 
     @GetMapping("/{id}")
-    public Film findFilmById(@PathVariable Long id) {
+    public Film findFilmById(@PathVariable Long id, WebRequest request) {
         log.info("Получен запрос 'получить фильм по id' с id = {}", id);
+        // ETag берем до чтения фильма: если фильм изменится между ними, клиент просто получит 200 повторно
+        if (request.checkNotModified(filmService.getFilmEtag(id))) {
+            return null;
+        }
         return filmService.findFilmById(id);
     }
 
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam(name = "query") String query,
+                                  @RequestParam(name = "by", defaultValue = "title,description") String by,
+                                  @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            log.warn("Значение поля limit должно быть от 1 до {}", MAX_PAGE_SIZE);
+            throw new ValidationException("Значение поля limit должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.info("Получен запрос на поиск фильмов по запросу '{}' в полях {}", query, by);
+        return filmService.searchFilms(query, by, limit);
+    }
+
+    @GetMapping("/cache/stats")
+    public CacheStatistics getFilmCacheStatistics() {
+        log.info("Получен запрос на получение статистики кэша фильмов");
+        return filmService.getFilmCacheStatistics();
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public Film likeTheFilm(@PathVariable Long id, @PathVariable Long userId) {
         log.info("Получен запрос 'поставить лайк' от пользователя {} фильму {}", userId, id);
@@ -58,12 +159,32 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int count) {
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int count,
+                                                  @RequestParam(name = "genreId", required = false) Integer genreId,
+                                                  @RequestParam(name = "year", required = false) Integer year,
+                                                  @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                  String acceptEncoding,
+                                                  WebRequest request) {
         if (count < 1) {
             log.warn("Значение поля count не должно равняться 0 или быть отрицательным");
             throw new ValidationException("Значение поля count не должно равняться 0 или быть отрицательным");
         }
+        if (year != null && (year < MIN_YEAR || year > MAX_YEAR)) {
+            log.warn("Некорректный год {}", year);
+            throw new ValidationException("Год должен быть в диапазоне от " + MIN_YEAR + " до " + MAX_YEAR);
+        }
         log.info("Получен запрос на получение списка {} самых популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+        PopularResponseCache.CachedResponse response = popularResponseCache.get(count, genreId, year);
+        boolean gzipped = response.gzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (request.checkNotModified(gzipped ? response.gzipEtag() : response.etag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzipped());
+        }
+        return builder.body(response.json());
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -23,14 +24,20 @@ public class GenresController {
     }
 
     @GetMapping
-    public Collection<Genre> getAllGenres() {
+    public Collection<Genre> getAllGenres(WebRequest request) {
         log.info("Получен запрос на получение жанров");
+        if (request.checkNotModified(genreService.getGenresEtag())) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable int id) {
-        log.info("Получен запрос на получение жанра с id =" + id);
+    public Genre getGenreById(@PathVariable int id, WebRequest request) {
+        log.info("Получен запрос на получение жанра с id = {}", id);
+        if (request.checkNotModified(genreService.getGenreEtag(id))) {
+            return null;
+        }
         return genreService.getGenreById(id);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -23,14 +24,20 @@ public class MpaController {
     }
 
     @GetMapping
-    public Collection<Mpa> getAllMpa() {
+    public Collection<Mpa> getAllMpa(WebRequest request) {
         log.info("Получен запрос на получение рейтингов");
+        if (request.checkNotModified(mpaService.getMpaEtag())) {
+            return null;
+        }
         return mpaService.getAllMpa();
     }
 
     @GetMapping("/{id}")
-    public Mpa getMpaById(@PathVariable int id) {
-        log.info("Получен запрос на получение рейтинга с id = " + id);
+    public Mpa getMpaById(@PathVariable int id, WebRequest request) {
+        log.info("Получен запрос на получение рейтинга с id = {}", id);
+        if (request.checkNotModified(mpaService.getMpaEtag(id))) {
+            return null;
+        }
         return mpaService.getMpaById(id);
     }
 }
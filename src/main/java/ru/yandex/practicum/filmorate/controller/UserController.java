@@ -3,7 +3,11 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -13,11 +17,15 @@ import java.util.Collection;
 @Slf4j
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SUGGESTIONS = 100;
     private final UserService userService;
+    private final FilmService filmService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService) {
         this.userService = userService;
+        this.filmService = filmService;
     }
 
     @PostMapping
@@ -32,6 +40,17 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public CursorPage<User> getUsersPage(@RequestParam(name = "after", required = false) String after,
+                                         @RequestParam(name = "limit") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            log.warn("Значение поля limit должно быть от 1 до {}", MAX_PAGE_SIZE);
+            throw new ValidationException("Значение поля limit должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.info("Получен запрос на получение страницы из {} пользователей после курсора {}", limit, after);
+        return userService.getUsersPage(after, limit);
+    }
+
     @PutMapping
     public User updateUser(@RequestBody User newUser) {
         log.info("Получен запрос на обновление пользователя {}", newUser);
@@ -67,4 +86,26 @@ public class UserController {
         log.info("Получен запрос от пользователя {} на получение всех общих друзей с пользователем {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(@PathVariable Long id,
+                                                 @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            log.warn("Значение поля limit должно быть от 1 до {}", MAX_SUGGESTIONS);
+            throw new ValidationException("Значение поля limit должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        log.info("Получен запрос на получение {} рекомендаций друзей для пользователя {}", limit, id);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable Long id,
+                                               @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            log.warn("Значение поля limit должно быть от 1 до {}", MAX_SUGGESTIONS);
+            throw new ValidationException("Значение поля limit должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        log.info("Получен запрос на получение рекомендаций фильмов для пользователя {}", id);
+        return filmService.getRecommendations(id, limit);
+    }
 }
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Открывает счетчик SQL-запросов в начале обработки HTTP-запроса и записывает его по шаблону адреса в конце.
+ * Счетчик привязан к потоку, поэтому асинхронные ответы (потоковая выгрузка /films/export) не учитываются:
+ * их запросы выполняются в другом потоке, и вместо заниженного значения запрос не записывается вовсе.
+ * Время таких запросов видно по таймерам filmorate.db.query.
+ */
+@Component
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    private final QueryMetrics queryMetrics;
+
+    public QueryCountInterceptor(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            queryMetrics.startRequest();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        queryMetrics.cancelRequest();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        queryMetrics.finishRequest(pattern == null ? "UNKNOWN" : pattern.toString());
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Считает подготовленные на соединении SQL-запросы в {@link QueryMetrics}.
+ * Метрики берутся лениво, чтобы пул соединений не зависел от реестра метрик при старте.
+ * Учитываются все запросы, в том числе неименованные, поэтому N+1 виден в счетчике запросов на HTTP-запрос.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "createStatement", "prepareCall");
+
+    private final ObjectProvider<QueryMetrics> queryMetricsProvider;
+    private volatile QueryMetrics queryMetrics;
+
+    public QueryCountingDataSource(DataSource target, ObjectProvider<QueryMetrics> queryMetrics) {
+        super(target);
+        this.queryMetricsProvider = queryMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private void countStatement() {
+        QueryMetrics metrics = queryMetrics;
+        if (metrics == null) {
+            metrics = queryMetricsProvider.getIfAvailable();
+            queryMetrics = metrics;
+        }
+        if (metrics != null) {
+            metrics.countStatement();
+        }
+    }
+
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        countStatement();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Метрики запросов к базе: таймер на каждый именованный запрос хранилища
+ * и число SQL-запросов, выполненных за один HTTP-запрос.
+ */
+@Component
+public class QueryMetrics {
+
+    private static final String QUERY_TIMER = "filmorate.db.query";
+    private static final String QUERIES_PER_REQUEST = "filmorate.db.queries.per.request";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ThreadLocal<int[]> requestQueries = new ThreadLocal<>();
+
+    public QueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T time(String query, Supplier<T> action) {
+        return timers.computeIfAbsent(query, name -> Timer.builder(QUERY_TIMER)
+                        .tag("query", name)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry))
+                .record(action);
+    }
+
+    public void startRequest() {
+        requestQueries.set(new int[1]);
+    }
+
+    public void countStatement() {
+        int[] counter = requestQueries.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+
+    public void cancelRequest() {
+        requestQueries.remove();
+    }
+
+    public void finishRequest(String uri) {
+        int[] counter = requestQueries.get();
+        if (counter == null) {
+            return;
+        }
+        requestQueries.remove();
+        DistributionSummary.builder(QUERIES_PER_REQUEST)
+                .tag("uri", uri)
+                .register(registry)
+                .record(counter[0]);
+    }
+}
@@ -5,16 +5,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CacheStatistics;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.ContentRevisions;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -23,13 +29,21 @@ public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final LikeStorage likeStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final ContentRevisions contentRevisions;
     private final LocalDate minReleaseDate = LocalDate.of(1895, 12, 28);
 
     @Autowired
-    public FilmService(@Qualifier("FilmDbStorage") FilmStorage filmStorage, @Qualifier("UserDbStorage") UserStorage userStorage, LikeStorage likeStorage) {
+    public FilmService(@Qualifier("FilmDbStorage") FilmStorage filmStorage, @Qualifier("UserDbStorage") UserStorage userStorage,
+                       LikeStorage likeStorage, GenreStorage genreStorage, MpaStorage mpaStorage,
+                       ContentRevisions contentRevisions) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.likeStorage = likeStorage;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.contentRevisions = contentRevisions;
     }
 
     public Film create(Film film) {
@@ -39,11 +53,33 @@ public class FilmService {
         return film;
     }
 
+    public List<Film> createAll(List<Film> films) {
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                validate(films.get(i));
+            } catch (ValidationException e) {
+                throw new ValidationException("Фильм с номером " + i + " в пакете: " + e.getMessage());
+            }
+        }
+        log.info("Создаем пакет из {} фильмов", films.size());
+        return filmStorage.createAll(films);
+    }
+
     public Collection<Film> getAllFilms() {
         log.info("Получаем список всех фильмов");
         return filmStorage.getAllFilms();
     }
 
+    public CursorPage<Film> getFilmsPage(String after, int limit) {
+        log.info("Получаем страницу из {} фильмов после курсора {}", limit, after);
+        return filmStorage.getFilmsPage(after, limit);
+    }
+
+    public void exportFilms(Consumer<Film> consumer) {
+        log.info("Выгружаем каталог фильмов");
+        filmStorage.exportFilms(consumer);
+    }
+
     public Film updateFilm(Film newFilm) {
         validate(newFilm);
         if (newFilm.getId() == null) {
@@ -58,19 +94,30 @@ public class FilmService {
         return filmStorage.findFilmById(id);
     }
 
+    public String getFilmEtag(Long id) {
+        return contentRevisions.filmEtag(id);
+    }
+
+    public String getFilmsEtag() {
+        return contentRevisions.filmsEtag();
+    }
+
+    public CacheStatistics getFilmCacheStatistics() {
+        return filmStorage.getCacheStatistics();
+    }
+
     public Film likeTheFilm(Long id, Long userId) {
         Film film = filmStorage.findFilmById(id);
-        User user = userStorage.findUserById(userId);
+        userStorage.checkUsersExist(userId);
         log.info("Пользователь с id {} ставит лайк фильму с id {}", userId, id);
         return likeStorage.likeTheFilm(film, userId);
     }
 
     public Film deleteLike(Long id, Long userId) {
         Film film = filmStorage.findFilmById(id);
-        User user = userStorage.findUserById(userId);
-        userStorage.findUserById(userId);
+        userStorage.checkUsersExist(userId);
 
-        likeStorage.deleteLike(film, userId);
+        film = likeStorage.deleteLike(film, userId);
         log.info("Пользователь с id {} удаляет лайк у фильма с id {}", userId, id);
 
         return film;
@@ -81,9 +128,37 @@ public class FilmService {
         return filmStorage.getPopularFilms(count);
     }
 
+    public Collection<Film> getPopularFilms(int count, Integer genreId, Integer year) {
+        log.info("Получаем список из {} самых популярных фильмов с жанром {} за {} год", count, genreId, year);
+        return filmStorage.getPopularFilms(count, genreId, year);
+    }
+
+    public List<Film> searchFilms(String query, String by, int limit) {
+        boolean byTitle = false;
+        boolean byDescription = false;
+        for (String field : by.split(",")) {
+            switch (field.trim()) {
+                case "title" -> byTitle = true;
+                case "description" -> byDescription = true;
+                default -> {
+                    log.warn("Неизвестное поле для поиска {}", field);
+                    throw new ValidationException("Искать можно только по полям title и description");
+                }
+            }
+        }
+        log.info("Ищем фильмы по запросу '{}' в полях {}", query, by);
+        return filmStorage.searchFilms(query, byTitle, byDescription, limit);
+    }
+
+    public List<Film> getRecommendations(Long userId, int limit) {
+        userStorage.checkUsersExist(userId);
+        log.info("Получаем рекомендации фильмов для пользователя с id {}", userId);
+        return filmStorage.findFilmsByIds(likeStorage.getRecommendedFilmIds(userId, limit));
+    }
+
     private void validate(Film film) {
         Optional<Genre> wrongGenres = film.getGenres().stream()
-                .filter(genre -> genre.getId() > 6 || genre.getId() < 1)
+                .filter(genre -> !genreStorage.containsGenre(genre.getId()))
                 .findFirst();
         if (film.getName() == null || film.getName().isBlank()) {
             log.warn("Название не может быть пустым");
@@ -112,7 +187,7 @@ public class FilmService {
         if (film.getMpa() == null) {
             throw new ValidationException("Рейтинг не может быть пустым");
         }
-        if (film.getMpa().getId() > 5 || film.getMpa().getId() < 1) {
+        if (!mpaStorage.containsMpa(film.getMpa().getId())) {
             throw new ValidationException("Указан некорректный рейтинг");
         }
         if (wrongGenres.isPresent()) {
@@ -16,6 +16,14 @@ public class GenreService {
         this.genreStorage = genreStorage;
     }
 
+    public String getGenresEtag() {
+        return genreStorage.getGenresEtag();
+    }
+
+    public String getGenreEtag(int id) {
+        return genreStorage.getGenreEtag(id);
+    }
+
     public Collection<Genre> getAllGenres() {
         return genreStorage.getAllGenres();
     }
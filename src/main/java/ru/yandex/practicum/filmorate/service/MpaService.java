@@ -16,6 +16,14 @@ public class MpaService {
         this.mpaStorage = mpaStorage;
     }
 
+    public String getMpaEtag() {
+        return mpaStorage.getMpaEtag();
+    }
+
+    public String getMpaEtag(int id) {
+        return mpaStorage.getMpaEtag(id);
+    }
+
     public Collection<Mpa> getAllMpa() {
         return mpaStorage.getAllMpa();
     }
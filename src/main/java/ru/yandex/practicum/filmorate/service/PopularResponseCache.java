@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Year;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Готовые JSON-ответы для списка популярных фильмов, по ключу count, genreId и year.
+ * Когда лайки меняют список, ответ перестраивается в фоне не чаще одного раза за окно debounce,
+ * а до перестройки отдается прежний ответ вместе со своим ETag. Если ответ устарел дольше max-stale-ms,
+ * он перестраивается синхронно. Запросы с count больше filmorate.popular.depth, несуществующим жанром
+ * или годом вне разумного диапазона не кэшируются, чтобы перебор параметров не вытеснял ходовые ответы.
+ * Фоновые перестройки идут в собственном пуле и не задерживают запись счетчиков лайков.
+ */
+@Service
+@Slf4j
+public class PopularResponseCache implements MeterBinder {
+
+    private static final int MIN_CACHED_YEAR = 1895;
+
+    private final FilmService filmService;
+    private final GenreStorage genreStorage;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskScheduler rebuildScheduler;
+    private final Duration debounce;
+    private final long maxStaleMs;
+    private final boolean gzip;
+    private final int depth;
+    private final Cache<Key, CachedResponse> cache;
+    private final Set<Key> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PopularResponseCache(FilmService filmService, GenreStorage genreStorage, ObjectMapper objectMapper,
+                                @Value("${filmorate.popular.response.debounce-ms:200}") long debounceMs,
+                                @Value("${filmorate.popular.response.max-stale-ms:2000}") long maxStaleMs,
+                                @Value("${filmorate.popular.response.gzip:true}") boolean gzip,
+                                @Value("${filmorate.popular.response.max-size:1000}") long maxSize,
+                                @Value("${filmorate.popular.depth:1000}") int depth,
+                                @Value("${filmorate.popular.response.rebuild-threads:2}") int rebuildThreads) {
+        this.filmService = filmService;
+        this.genreStorage = genreStorage;
+        this.objectMapper = objectMapper;
+        this.rebuildScheduler = new ThreadPoolTaskScheduler();
+        this.rebuildScheduler.setPoolSize(rebuildThreads);
+        this.rebuildScheduler.setThreadNamePrefix("popular-rebuild-");
+        this.rebuildScheduler.initialize();
+        this.debounce = Duration.ofMillis(debounceMs);
+        this.maxStaleMs = maxStaleMs;
+        this.gzip = gzip;
+        this.depth = depth;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public CachedResponse get(int count, Integer genreId, Integer year) {
+        Key key = new Key(count, genreId, year);
+        String etag = filmService.getFilmsEtag();
+        if (!isCacheable(key)) {
+            return build(key, etag);
+        }
+        CachedResponse response = cache.getIfPresent(key);
+        if (response == null) {
+            return cache.get(key, k -> build(k, etag));
+        }
+        if (response.etag().equals(etag)) {
+            return response;
+        }
+        long now = System.currentTimeMillis();
+        response.staleSince().compareAndSet(0, now);
+        if (now - response.staleSince().get() > maxStaleMs) {
+            return rebuild(key, etag);
+        }
+        scheduleRebuild(key);
+        return response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildScheduler.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "popular-responses");
+    }
+
+    private void scheduleRebuild(Key key) {
+        if (!pendingRebuilds.add(key)) {
+            return;
+        }
+        rebuildScheduler.schedule(() -> {
+            // снимаем отметку до чтения, чтобы лайки во время перестройки запланировали следующую
+            pendingRebuilds.remove(key);
+            try {
+                rebuild(key, filmService.getFilmsEtag());
+            } catch (RuntimeException e) {
+                log.warn("Не удалось перестроить список популярных фильмов для {}", key, e);
+            }
+        }, Instant.now().plus(debounce));
+    }
+
+    private boolean isCacheable(Key key) {
+        if (key.count() > depth) {
+            return false;
+        }
+        if (key.genreId() != null && !genreStorage.containsGenre(key.genreId())) {
+            return false;
+        }
+        return key.year() == null || (key.year() >= MIN_CACHED_YEAR && key.year() <= Year.now().getValue() + 1);
+    }
+
+    private CachedResponse rebuild(Key key, String etag) {
+        // не затираем ответ, который уже успели перестроить под этот ETag
+        return cache.asMap().compute(key, (k, old) ->
+                old != null && old.etag().equals(etag) ? old : build(k, etag));
+    }
+
+    private CachedResponse build(Key key, String etag) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(filmService.getPopularFilms(key.count(), key.genreId(), key.year()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Перестроен список популярных фильмов для {}, размер {} байт", key, json.length);
+        return new CachedResponse(etag, json, gzip ? gzip(json) : null, new AtomicLong());
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private record Key(int count, Integer genreId, Integer year) {
+    }
+
+    public record CachedResponse(String etag, byte[] json, byte[] gzipped, AtomicLong staleSince) {
+
+        /**
+         * Сжатое тело отличается побайтно, поэтому у него свой строгий ETag.
+         */
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
@@ -33,6 +34,11 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public CursorPage<User> getUsersPage(String after, int limit) {
+        log.info("Получаем страницу из {} пользователей после курсора {}", limit, after);
+        return userStorage.getUsersPage(after, limit);
+    }
+
     public User updateUser(User newUser) {
         validate(newUser);
         if (newUser.getId() == null) {
@@ -44,7 +50,7 @@ public class UserService {
     }
 
     public User findUserById(Long id) {
-        log.info("Получаем пользователя с id = {}" + id);
+        log.info("Получаем пользователя с id = {}", id);
         return  userStorage.findUserById(id);
     }
 
@@ -64,6 +70,10 @@ public class UserService {
         return userStorage.getCommonFriends(id, otherId);
     }
 
+    public Collection<User> getFriendSuggestions(Long id, int limit) {
+        return userStorage.getFriendSuggestions(id, limit);
+    }
+
     private void validate(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
             log.warn("Электронная почта не может быть пустой и должна содержать символ @");
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage.DAO;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.CacheStatistics;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Кэш фильмов по id с ограничением по размеру и времени жизни.
+ * Количество лайков в кэше не хранится: при чтении оно берется из {@link PopularFilmsIndex}.
+ */
+@Component
+public class FilmCache implements MeterBinder {
+
+    private final Cache<Long, Film> cache;
+    private final PopularFilmsIndex popularFilmsIndex;
+
+    @Autowired
+    public FilmCache(PopularFilmsIndex popularFilmsIndex,
+                     @Value("${filmorate.film-cache.max-size:10000}") long maxSize,
+                     @Value("${filmorate.film-cache.ttl-ms:600000}") long ttlMs) {
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+
+    public Film get(Long id, Function<Long, Film> loader) {
+        Film film = copyOf(cache.get(id, loader));
+        Integer likesCount = popularFilmsIndex.getLikes(id);
+        if (likesCount != null) {
+            film.setLikesCount(likesCount);
+        }
+        return film;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+
+    private Film copyOf(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setMpa(film.getMpa());
+        Set<Genre> genres = new HashSet<>();
+        for (Genre genre : film.getGenres()) {
+            genres.add(new Genre(genre.getId(), genre.getName()));
+        }
+        copy.setGenres(genres);
+        copy.setLikesCount(film.getLikesCount());
+        return copy;
+    }
+}
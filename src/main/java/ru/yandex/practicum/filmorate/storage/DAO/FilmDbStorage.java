@@ -1,25 +1,37 @@
 package ru.yandex.practicum.filmorate.storage.DAO;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
+import ru.yandex.practicum.filmorate.model.CacheStatistics;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.index.ContentRevisions;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component
 @Slf4j
@@ -28,36 +40,84 @@ public class FilmDbStorage implements FilmStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final GenreStorage genreStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmCache filmCache;
+    private final FilmSearchIndex filmSearchIndex;
+    private final QueryMetrics queryMetrics;
+    private final ContentRevisions contentRevisions;
+    private final int exportFetchSize;
+    private final int batchChunkSize;
+    private final SingleFlight<PopularKey, List<Film>> popularLoads;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, GenreStorage genreStorage) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, GenreStorage genreStorage, PopularFilmsIndex popularFilmsIndex,
+                         TransactionTemplate transactionTemplate, FilmCache filmCache, FilmSearchIndex filmSearchIndex,
+                         QueryMetrics queryMetrics, ContentRevisions contentRevisions, MeterRegistry meterRegistry,
+                         @Value("${filmorate.export.fetch-size:500}") int exportFetchSize,
+                         @Value("${filmorate.batch.chunk-size:1000}") int batchChunkSize) {
         this.jdbcTemplate = jdbcTemplate;
         this.genreStorage = genreStorage;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.filmCache = filmCache;
+        this.filmSearchIndex = filmSearchIndex;
+        this.queryMetrics = queryMetrics;
+        this.contentRevisions = contentRevisions;
+        this.exportFetchSize = exportFetchSize;
+        this.batchChunkSize = batchChunkSize;
+        this.popularLoads = new SingleFlight<>("popular", meterRegistry);
     }
 
     private static final String CREATE_FILM_QUERY = "INSERT INTO films(name, description, releaseDate, duration, mpa_id) " +
             "VALUES (?, ?, ?, ?, ?)";
-    private static final String UPDATE_FILM_QUERY = "UPDATE films SET name = ?, description = ?, releaseDate = ?, duration = ?, mpa_id = ?, likes_count = ? " +
+    private static final String UPDATE_FILM_QUERY = "UPDATE films SET name = ?, description = ?, releaseDate = ?, duration = ?, mpa_id = ? " +
             "WHERE film_id = ?";
 
     private static final String FIND_BY_ID_QUERY = "SELECT f.*, m.name as mpa_name FROM films f LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
             "WHERE f.film_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT f.*, m.name as mpa_name FROM films f LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
+            "WHERE f.film_id IN (%s)";
     private static final String ADD_GENRES_QUERY = "INSERT INTO film_genre(film_id, genre_id) " +
             "VALUES (?, ?)";
+    private static final String DELETE_GENRES_QUERY = "DELETE FROM film_genre WHERE film_id = ?";
     private static final String GET_ALL_QUERY = "SELECT f.*, g.genre_id, g.name AS genre_name, m.name as mpa_name " +
             "FROM films f " +
             "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
             "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
             "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
             "ORDER BY likes_count DESC, f.film_id ASC ";
-
-    private static final String GET_POPULAR_QUERY = "SELECT f.*, g.genre_id, g.name AS genre_name, m.name as mpa_name " +
+    // выгрузке нужна только группировка строк по фильму, порядок по первичному ключу не требует сортировки
+    private static final String EXPORT_QUERY = "SELECT f.*, g.genre_id, g.name AS genre_name, m.name as mpa_name " +
             "FROM films f " +
             "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
             "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
             "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
+            "ORDER BY f.film_id ASC";
+
+    private static final String GET_POPULAR_QUERY = "SELECT f.*, m.name as mpa_name " +
+            "FROM films f " +
+            "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
             "ORDER BY likes_count DESC, f.film_id ASC LIMIT ?";
 
+    private static final String GET_POPULAR_FILTERED_QUERY = "SELECT f.*, m.name as mpa_name " +
+            "FROM films f " +
+            "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id ";
+    private static final String GENRE_FILTER = "JOIN film_genre fg ON fg.film_id = f.film_id AND fg.genre_id = ? ";
+    private static final String YEAR_FILTER = "WHERE f.releaseDate >= ? AND f.releaseDate < ? ";
+    private static final String POPULAR_ORDER = "ORDER BY f.likes_count DESC, f.film_id ASC LIMIT ?";
+
+    private static final String GET_PAGE_QUERY = "SELECT f.*, m.name as mpa_name " +
+            "FROM films f " +
+            "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
+            "ORDER BY f.likes_count DESC, f.film_id ASC LIMIT ?";
+
+    private static final String GET_PAGE_AFTER_QUERY = "SELECT f.*, m.name as mpa_name " +
+            "FROM films f " +
+            "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
+            "WHERE f.likes_count <= ? AND (f.likes_count < ? OR (f.likes_count = ? AND f.film_id > ?)) " +
+            "ORDER BY f.likes_count DESC, f.film_id ASC LIMIT ?";
+
     @Override
     public Film create(Film film) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -68,7 +128,7 @@ public class FilmDbStorage implements FilmStorage {
             genres = addNameToGenre(film.getGenres());
             film.setGenres(genres);
         }
-        jdbcTemplate.update(connection -> {
+        queryMetrics.time("FilmDbStorage.CREATE_FILM_QUERY", () -> jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(CREATE_FILM_QUERY, new String[]{"film_id"});
             ps.setString(1, film.getName());
             ps.setString(2, film.getDescription());
@@ -76,46 +136,142 @@ public class FilmDbStorage implements FilmStorage {
             ps.setInt(4, film.getDuration());
             ps.setInt(5, mpa.getId());
             return ps;
-        }, keyHolder);
+        }, keyHolder));
         film.setId(keyHolder.getKey().longValue());
         if (!film.getGenres().isEmpty()) {
             addGenres(film);
             log.info("добавляем жанры {}", genres);
         }
+        popularFilmsIndex.addFilm(film.getId(), 0);
+        filmSearchIndex.addFilm(film.getId(), film.getName(), film.getDescription());
+        contentRevisions.filmChanged(film.getId());
         log.info("Создан фильм с id = {}", film.getId());
         return film;
     }
 
     @Override
-    public Collection<Film> getAllFilms() {
-        List<Long> filmsId = new ArrayList<>();
-        List<Film> films = new ArrayList<>();
-        Map<Long, Set<Genre>> genresWithFilms = new HashMap<>();
+    public List<Film> createAll(List<Film> films) {
+        for (int from = 0; from < films.size(); from += batchChunkSize) {
+            List<Film> chunk = films.subList(from, Math.min(from + batchChunkSize, films.size()));
+            transactionTemplate.executeWithoutResult(status -> createChunk(chunk));
+            for (Film film : chunk) {
+                popularFilmsIndex.addFilm(film.getId(), 0);
+                filmSearchIndex.addFilm(film.getId(), film.getName(), film.getDescription());
+                contentRevisions.filmChanged(film.getId());
+            }
+            log.info("Создано фильмов в пакете: {} из {}", from + chunk.size(), films.size());
+        }
+        return films;
+    }
 
-        jdbcTemplate.query(GET_ALL_QUERY, (rs, rowNum) -> {
-            Long filmId = rs.getLong("film_id");
-            if (!filmsId.contains(filmId)) {
-                Film film = createFilm(rs);
-                films.add(film);
-                filmsId.add(filmId);
+    private void createChunk(List<Film> films) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        BatchPreparedStatementSetter setter = new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Film film = films.get(i);
+                ps.setString(1, film.getName());
+                ps.setString(2, film.getDescription());
+                ps.setDate(3, java.sql.Date.valueOf(film.getReleaseDate()));
+                ps.setInt(4, film.getDuration());
+                ps.setInt(5, film.getMpa().getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return films.size();
             }
-            if (rs.getString("genre_name") != null) {
-                Genre genre = new Genre(rs.getInt("genre_id"), rs.getString("genre_name"));
-                Set<Genre> filmGenres = genresWithFilms.get(filmId);
-                if (filmGenres == null) {
-                    filmGenres = new HashSet<>();
-                    genresWithFilms.put(filmId, filmGenres);
+        };
+        queryMetrics.time("FilmDbStorage.CREATE_FILM_BATCH", () -> jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(CREATE_FILM_QUERY, new String[]{"film_id"}),
+                setter, keyHolder));
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Object[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).get("film_id")).longValue());
+            film.setLikesCount(0);
+            if (!film.getGenres().isEmpty()) {
+                film.setGenres(addNameToGenre(film.getGenres()));
+                for (Genre genre : film.getGenres()) {
+                    filmGenres.add(new Object[]{film.getId(), genre.getId()});
                 }
-                filmGenres.add(genre);
             }
+        }
+        if (!filmGenres.isEmpty()) {
+            queryMetrics.time("FilmDbStorage.ADD_GENRES_BATCH",
+                    () -> jdbcTemplate.batchUpdate(ADD_GENRES_QUERY, filmGenres));
+        }
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        List<Film> films = new ArrayList<>();
+        FilmRowAggregator aggregator = new FilmRowAggregator(this::makeFilm, films::add);
+        queryMetrics.time("FilmDbStorage.GET_ALL_QUERY", () -> {
+            jdbcTemplate.query(GET_ALL_QUERY, aggregator);
             return null;
         });
-        for (Film film : films) {
-            if (genresWithFilms.containsKey(film.getId())) {
-                film.setGenres(genresWithFilms.get(film.getId()));
+        aggregator.finish();
+        return films;
+    }
+
+    @Override
+    public CursorPage<Film> getFilmsPage(String after, int limit) {
+        List<Film> films = new ArrayList<>();
+        List<Integer> storedLikes = new ArrayList<>();
+        RowCallbackHandler handler = rs -> {
+            films.add(makeFilm(rs, 0));
+            storedLikes.add(rs.getInt("likes_count"));
+        };
+        if (after == null) {
+            queryMetrics.time("FilmDbStorage.GET_PAGE_QUERY", () -> {
+                jdbcTemplate.query(GET_PAGE_QUERY, handler, limit + 1);
+                return null;
+            });
+        } else {
+            String[] cursor = after.split(":");
+            int afterLikes;
+            long afterId;
+            try {
+                afterLikes = Integer.parseInt(cursor[0]);
+                afterId = Long.parseLong(cursor[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new ValidationException("Некорректный курсор " + after);
             }
+            // первое условие задает начало диапазона в индексе films_popularity_idx, остальные отсекают уже выданное
+            queryMetrics.time("FilmDbStorage.GET_PAGE_AFTER_QUERY", () -> {
+                jdbcTemplate.query(GET_PAGE_AFTER_QUERY, handler, afterLikes, afterLikes, afterLikes, afterId,
+                        limit + 1);
+                return null;
+            });
         }
-        return films;
+        String nextCursor = null;
+        if (films.size() > limit) {
+            films.remove(limit);
+            // курсор строим по likes_count из базы, а не по значению с учетом неотправленных лайков
+            nextCursor = storedLikes.get(limit - 1) + ":" + films.get(limit - 1).getId();
+        }
+        addGenresToFilms(films);
+        log.info("Получена страница из {} фильмов после курсора {}", films.size(), after);
+        return new CursorPage<>(films, nextCursor);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        FilmRowAggregator aggregator = new FilmRowAggregator(this::makeFilm, consumer);
+        // выгрузка идет в асинхронном потоке и не попадает в счетчик запросов на HTTP-запрос, ее видно по таймеру
+        queryMetrics.time("FilmDbStorage.EXPORT_QUERY", () -> {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(EXPORT_QUERY,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(exportFetchSize);
+                return ps;
+            }, aggregator);
+            return null;
+        });
+        aggregator.finish();
+        log.info("Выгружен каталог фильмов");
     }
 
     @Override
@@ -124,7 +280,6 @@ public class FilmDbStorage implements FilmStorage {
         if (oldFilm == null) {
             throw new NotFoundException("Фильм с id = {} не найден" + newFilm.getId());
         }
-        int likesCount = oldFilm.getLikesCount();
         Set<Genre> genres;
         if (!newFilm.getGenres().isEmpty()) {
             log.info("добавляем имена жанрам");
@@ -132,36 +287,136 @@ public class FilmDbStorage implements FilmStorage {
             newFilm.setGenres(genres);
         }
 
-        jdbcTemplate.update(UPDATE_FILM_QUERY,
+        queryMetrics.time("FilmDbStorage.UPDATE_FILM_QUERY", () -> jdbcTemplate.update(UPDATE_FILM_QUERY,
                 newFilm.getName(),
                 newFilm.getDescription(),
                 toSqlDate(newFilm.getReleaseDate()),
                 newFilm.getDuration(),
                 newFilm.getMpa().getId(),
-                likesCount,
-                newFilm.getId());
+                newFilm.getId()));
+        newFilm.setLikesCount(oldFilm.getLikesCount());
         if (newFilm.getGenres() != null || !newFilm.getGenres().isEmpty()) {
             log.info("добавляем жанры {}", newFilm.getGenres());
-            jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", newFilm.getId());
+            queryMetrics.time("FilmDbStorage.DELETE_GENRES_QUERY",
+                    () -> jdbcTemplate.update(DELETE_GENRES_QUERY, newFilm.getId()));
             addGenres(newFilm);
         }
+        filmCache.invalidate(newFilm.getId());
+        filmSearchIndex.addFilm(newFilm.getId(), newFilm.getName(), newFilm.getDescription());
+        contentRevisions.filmChanged(newFilm.getId());
         log.info("Обновлен фильм с id = {}", newFilm.getId());
         return newFilm;
     }
 
     @Override
     public Film findFilmById(Long id) {
-        final List<Film> films = jdbcTemplate.query(FIND_BY_ID_QUERY, this::makeFilm, id);
+        return filmCache.get(id, this::loadFilmById);
+    }
+
+    private Film loadFilmById(Long id) {
+        final List<Film> films = queryMetrics.time("FilmDbStorage.FIND_BY_ID_QUERY",
+                () -> jdbcTemplate.query(FIND_BY_ID_QUERY, this::makeFilm, id));
         if (films.size() != 1) {
             throw new NotFoundException("Не найден фильм с id = " + id);
         }
+        addGenresToFilms(films);
         return films.get(0);
     }
 
     @Override
     public Collection<Film> getPopularFilms(int count) {
-        log.info("Получен список из {} самых популярных фильмов", count);
-        return jdbcTemplate.query(GET_POPULAR_QUERY, this::makeFilm, count);
+        // обе ветки читают базу: из рейтинга в памяти берутся только id, сами фильмы и жанры грузятся запросом
+        return popularLoads.load(new PopularKey(count, null, null), () -> {
+            if (popularFilmsIndex.canServe(count)) {
+                log.info("Получен список из {} самых популярных фильмов из рейтинга в памяти", count);
+                return findFilmsByIds(popularFilmsIndex.getTopFilmIds(count));
+            }
+            log.info("Получен список из {} самых популярных фильмов", count);
+            List<Film> films = queryMetrics.time("FilmDbStorage.GET_POPULAR_QUERY",
+                    () -> jdbcTemplate.query(GET_POPULAR_QUERY, this::makeFilm, count));
+            addGenresToFilms(films);
+            return films;
+        });
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return getPopularFilms(count);
+        }
+        FilteredQuery query = popularFilteredQuery(count, genreId, year);
+        List<Film> films = popularLoads.load(new PopularKey(count, genreId, year), () -> {
+            List<Film> loaded = queryMetrics.time("FilmDbStorage.GET_POPULAR_FILTERED_QUERY",
+                    () -> jdbcTemplate.query(query.sql(), this::makeFilm, query.params()));
+            addGenresToFilms(loaded);
+            return loaded;
+        });
+        log.info("Получен список из {} самых популярных фильмов с жанром {} за {} год", films.size(), genreId, year);
+        return films;
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return filmCache.getStatistics();
+    }
+
+    /**
+     * План запроса популярных фильмов с фильтрами, собранного так же, как в getPopularFilms.
+     */
+    public String explainPopularFilms(int count, Integer genreId, Integer year) {
+        FilteredQuery query = popularFilteredQuery(count, genreId, year);
+        return String.join(System.lineSeparator(),
+                jdbcTemplate.queryForList("EXPLAIN " + query.sql(), String.class, query.params()));
+    }
+
+    private FilteredQuery popularFilteredQuery(int count, Integer genreId, Integer year) {
+        // год фильтруем диапазоном дат, чтобы запрос мог использовать индекс по releaseDate
+        StringBuilder sql = new StringBuilder(GET_POPULAR_FILTERED_QUERY);
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            sql.append(GENRE_FILTER);
+            params.add(genreId);
+        }
+        if (year != null) {
+            sql.append(YEAR_FILTER);
+            params.add(toSqlDate(LocalDate.of(year, 1, 1)));
+            params.add(toSqlDate(LocalDate.of(year + 1, 1, 1)));
+        }
+        sql.append(POPULAR_ORDER);
+        params.add(count);
+        return new FilteredQuery(sql.toString(), params.toArray());
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, boolean byTitle, boolean byDescription, int limit) {
+        List<Film> films = findFilmsByIds(filmSearchIndex.search(query, byTitle, byDescription, limit));
+        log.info("По запросу '{}' найдено фильмов: {}", query, films.size());
+        return films;
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
+        Map<Long, Film> filmsById = new HashMap<>();
+        queryMetrics.time("FilmDbStorage.FIND_BY_IDS_QUERY", () -> {
+            jdbcTemplate.query(String.format(FIND_BY_IDS_QUERY, placeholders), rs -> {
+                Film film = makeFilm(rs, 0);
+                filmsById.put(film.getId(), film);
+            }, filmIds.toArray());
+            return null;
+        });
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Long filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        addGenresToFilms(films);
+        return films;
     }
 
     private Film makeFilm(ResultSet rs, int rowNum) throws SQLException {
@@ -172,31 +427,35 @@ public class FilmDbStorage implements FilmStorage {
         film.setReleaseDate(rs.getDate("releaseDate").toLocalDate());
         film.setDuration(rs.getInt("duration"));
         film.setMpa(new Mpa(rs.getInt("mpa_id"), rs.getString("mpa_name")));
-        Set<Genre> genres = genreStorage.getFilmGenres(rs.getLong("film_id"));
-        if (genres.size() != 0) {
-            film.setGenres(genres);
-        }
-        film.setLikesCount(rs.getInt("likes_count"));
-        log.info("Текущее количество лайков в результате запроса: {}", rs.getInt("likes_count"));
+        film.setLikesCount(currentLikes(film.getId(), rs.getInt("likes_count")));
         return film;
     }
 
-    private Film createFilm(ResultSet rs) throws SQLException {
-        Film film = new Film();
-        film.setId(rs.getLong("film_id"));
-        film.setName(rs.getString("name"));
-        film.setDescription(rs.getString("description"));
-        film.setReleaseDate(rs.getDate("releaseDate").toLocalDate());
-        film.setDuration(rs.getInt("duration"));
-        Mpa mpa = new Mpa(rs.getInt("mpa_id"), rs.getString("mpa_name"));
-        film.setMpa(mpa);
-        film.setLikesCount(rs.getInt("likes_count"));
-        return film;
+    private int currentLikes(Long filmId, int storedLikes) {
+        // likes_count в базе отстает на неотправленные изменения буфера, актуальное значение хранит рейтинг
+        Integer likes = popularFilmsIndex.getLikes(filmId);
+        return likes == null ? storedLikes : likes;
+    }
+
+    private void addGenresToFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Long> filmIds = films.stream()
+                .map(Film::getId)
+                .toList();
+        Map<Long, Set<Genre>> genresByFilm = genreStorage.getFilmsGenres(filmIds);
+        for (Film film : films) {
+            Set<Genre> genres = genresByFilm.get(film.getId());
+            if (genres != null) {
+                film.setGenres(genres);
+            }
+        }
     }
 
     private void addGenres(Film film) {
         List<Genre> genres = new ArrayList<>(film.getGenres());
-        jdbcTemplate.batchUpdate(ADD_GENRES_QUERY, new BatchPreparedStatementSetter() {
+        BatchPreparedStatementSetter setter = new BatchPreparedStatementSetter() {
             @Override
             public void setValues(PreparedStatement ps, int i) throws SQLException {
                 ps.setLong(1, film.getId());
@@ -207,7 +466,8 @@ public class FilmDbStorage implements FilmStorage {
             public int getBatchSize() {
                 return genres.size();
             }
-        });
+        };
+        queryMetrics.time("FilmDbStorage.ADD_GENRES_BATCH", () -> jdbcTemplate.batchUpdate(ADD_GENRES_QUERY, setter));
     }
 
     private Set<Genre> addNameToGenre(Set<Genre> genres) {
@@ -221,4 +481,10 @@ public class FilmDbStorage implements FilmStorage {
     private Date toSqlDate(LocalDate localDate) {
         return java.sql.Date.valueOf(localDate);
     }
-}
\ No newline at end of file
+
+    private record PopularKey(int count, Integer genreId, Integer year) {
+    }
+
+    private record FilteredQuery(String sql, Object[] params) {
+    }
+}
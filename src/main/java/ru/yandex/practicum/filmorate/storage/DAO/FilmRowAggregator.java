@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage.DAO;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Собирает фильмы из строк запроса с LEFT JOIN на жанры за один проход.
+ * Строки одного фильма должны идти подряд, поэтому запрос сортируется так, чтобы film_id не перемешивались.
+ */
+class FilmRowAggregator implements RowCallbackHandler {
+
+    private final RowMapper<Film> filmMapper;
+    private final Consumer<Film> consumer;
+    private Film current;
+    private int rowNum;
+
+    FilmRowAggregator(RowMapper<Film> filmMapper, Consumer<Film> consumer) {
+        this.filmMapper = filmMapper;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        long filmId = rs.getLong("film_id");
+        if (current == null || current.getId() != filmId) {
+            finish();
+            current = filmMapper.mapRow(rs, rowNum++);
+        }
+        if (rs.getString("genre_name") != null) {
+            current.addFilmGenre(new Genre(rs.getInt("genre_id"), rs.getString("genre_name")));
+        }
+    }
+
+    void finish() {
+        if (current != null) {
+            consumer.accept(current);
+            current = null;
+        }
+    }
+}
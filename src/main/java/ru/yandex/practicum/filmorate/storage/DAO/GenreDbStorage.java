@@ -1,13 +1,16 @@
 package ru.yandex.practicum.filmorate.storage.DAO;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.index.ContentRevisions;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -15,47 +18,115 @@ import java.util.*;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
 
     private final JdbcTemplate jdbcTemplate;
-    private static final String GET_GENRES_QUERY = "SELECT * FROM genre";
-    private static final String GET_BY_ID_QUERY = "SELECT * FROM genre WHERE genre_id = ?";
-    private static final String  GET_GENRES_NAME_QUERY = "SELECT name FROM genre WHERE genre_id = ?";
+    private final QueryMetrics queryMetrics;
+    private final ContentRevisions contentRevisions;
+    private final long referenceTtlMs;
+    private volatile Map<Integer, Genre> genresById = Map.of();
+    private volatile long loadedAt;
+    private static final String GET_GENRES_QUERY = "SELECT * FROM genre ORDER BY genre_id";
+    private static final String GET_FILMS_GENRES_QUERY = "SELECT fg.film_id, g.genre_id, g.name FROM film_genre fg " +
+            "JOIN genre g ON fg.genre_id = g.genre_id WHERE fg.film_id IN (%s)";
+
+    @Autowired
+    public GenreDbStorage(JdbcTemplate jdbcTemplate, QueryMetrics queryMetrics, ContentRevisions contentRevisions,
+                          @Value("${filmorate.reference.ttl-ms:600000}") long referenceTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryMetrics = queryMetrics;
+        this.contentRevisions = contentRevisions;
+        this.referenceTtlMs = referenceTtlMs;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Integer, Genre> genres = new LinkedHashMap<>();
+        for (Genre genre : queryMetrics.time("GenreDbStorage.GET_GENRES_QUERY",
+                () -> jdbcTemplate.query(GET_GENRES_QUERY, this::makeGenre))) {
+            genres.put(genre.getId(), genre);
+        }
+        if (!genres.equals(genresById)) {
+            contentRevisions.genresChanged();
+        }
+        genresById = Collections.unmodifiableMap(genres);
+        loadedAt = System.currentTimeMillis();
+        log.info("Загружен справочник жанров, жанров: {}", genres.size());
+    }
 
     @Override
     public Collection<Genre> getAllGenres() {
-        return jdbcTemplate.query(GET_GENRES_QUERY, this::makeGenre);
+        return getGenres().values().stream()
+                .map(this::copyGenre)
+                .toList();
     }
 
     @Override
     public Genre getGenreById(int id) {
-        List<Genre> genres = jdbcTemplate.query(GET_BY_ID_QUERY, this::makeGenre, id);
-        if (genres.size() != 1) {
-            log.warn("Не найден жанр с id = " + id);
+        Genre genre = getGenres().get(id);
+        if (genre == null) {
+            log.warn("Не найден жанр с id = {}", id);
             throw new NotFoundException("Не найден жанр с id = " + id);
         }
-        log.info("Получен жанр с id = " + id);
-        return genres.get(0);
+        log.info("Получен жанр с id = {}", id);
+        return copyGenre(genre);
     }
 
     @Override
-    public Set<Genre> getFilmGenres(Long id) {
-        String sql = "SELECT * FROM film_genre JOIN genre ON film_genre.genre_id = genre.genre_id WHERE film_id = ?";
-        return new HashSet<>(
-                jdbcTemplate.query(sql, (rs, rowNum) -> new Genre(
-                                rs.getInt("genre_id"),
-                                rs.getString("name")),
-                        id
-                ));
+    public boolean containsGenre(int id) {
+        return getGenres().containsKey(id);
     }
 
-    public String getGenreByName(int id) {
-        try {
-            return jdbcTemplate.queryForObject(GET_GENRES_NAME_QUERY, String.class, id);
-        } catch (EmptyResultDataAccessException e) {
+    /**
+     * ETag считается после проверки TTL, чтобы истёкший справочник перечитался до сравнения с If-None-Match.
+     */
+    @Override
+    public String getGenresEtag() {
+        getGenres();
+        return contentRevisions.genresEtag();
+    }
+
+    @Override
+    public String getGenreEtag(int id) {
+        getGenres();
+        return contentRevisions.genreEtag(id);
+    }
+
+    @Override
+    public Map<Long, Set<Genre>> getFilmsGenres(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genresByFilm;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
+        queryMetrics.time("GenreDbStorage.GET_FILMS_GENRES_QUERY", () -> {
+            jdbcTemplate.query(String.format(GET_FILMS_GENRES_QUERY, placeholders), rs -> {
+                genresByFilm.computeIfAbsent(rs.getLong("film_id"), filmId -> new HashSet<>())
+                        .add(makeGenre(rs, 0));
+            }, filmIds.toArray());
             return null;
+        });
+        return genresByFilm;
+    }
+
+    public String getGenreByName(int id) {
+        Genre genre = getGenres().get(id);
+        return genre == null ? null : genre.getName();
+    }
+
+    private Map<Integer, Genre> getGenres() {
+        if (System.currentTimeMillis() - loadedAt > referenceTtlMs) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > referenceTtlMs) {
+                    reload();
+                }
+            }
         }
+        return genresById;
+    }
+
+    private Genre copyGenre(Genre genre) {
+        return new Genre(genre.getId(), genre.getName());
     }
 
     private Genre makeGenre(ResultSet rs, int rowNum) throws SQLException {
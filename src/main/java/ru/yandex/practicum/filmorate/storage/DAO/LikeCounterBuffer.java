@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.DAO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Накапливает изменения films.likes_count в памяти и периодически записывает их в базу одним batch-запросом.
+ * Строки film_likes пишутся сразу, отложенно обновляется только счетчик.
+ * Текущее число лайков при чтении берется из {@link ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex},
+ * поэтому буфер нужен только для записи. Изменения, не записанные до падения, теряются,
+ * поэтому при старте likes_count сверяется с film_likes.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+@RequiredArgsConstructor
+public class LikeCounterBuffer {
+
+    private static final String FLUSH_QUERY = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+    private static final String RECONCILE_QUERY = "UPDATE films f " +
+            "SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id) " +
+            "WHERE likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final QueryMetrics queryMetrics;
+    private final ConcurrentMap<Long, Long> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+    public void add(Long filmId, int delta) {
+        pending.merge(filmId, (long) delta, Long::sum);
+    }
+
+    @PostConstruct
+    public void reconcile() {
+        int fixed = queryMetrics.time("LikeCounterBuffer.RECONCILE_QUERY", () -> jdbcTemplate.update(RECONCILE_QUERY));
+        if (fixed > 0) {
+            // рейтинг мог загрузиться из расходящегося столбца раньше сверки
+            popularFilmsIndex.reload();
+            log.warn("Счетчики лайков расходились с film_likes и пересчитаны для {} фильмов", fixed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        // забираем записи целиком, чтобы в pending оставались только фильмы с новыми лайками
+        for (Long filmId : pending.keySet()) {
+            Long delta = pending.remove(filmId);
+            if (delta != null && delta != 0) {
+                // inFlight хранит изменения, которые еще не записаны; при ошибке они уйдут в следующей попытке
+                inFlight.merge(filmId, delta, Long::sum);
+            }
+        }
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> deltas = new HashMap<>(inFlight);
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((filmId, delta) -> batch.add(new Object[]{delta, filmId}));
+        try {
+            // весь пакет в одной транзакции: при ошибке не записывается ничего, и повтор не удвоит лайки
+            queryMetrics.time("LikeCounterBuffer.FLUSH_QUERY", () -> transactionTemplate.execute(
+                    status -> jdbcTemplate.batchUpdate(FLUSH_QUERY, batch)));
+            inFlight.clear();
+            log.info("Записаны счетчики лайков для {} фильмов", deltas.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать счетчики лайков, повторим при следующей попытке", e);
+        }
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+        inFlight.clear();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -2,13 +2,19 @@ package ru.yandex.practicum.filmorate.storage.DAO;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.index.ContentRevisions;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @RequiredArgsConstructor
@@ -17,39 +23,91 @@ import java.util.Set;
 public class LikeDbStorage implements LikeStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final UserLikesIndex userLikesIndex;
+    private final QueryMetrics queryMetrics;
+    private final ContentRevisions contentRevisions;
+    // запись лайка и обновление UserLikesIndex идут под блокировкой пользователя, иначе быстрые
+    // лайк и отмена могут применить изменения к индексу в обратном порядке
+    private final StripedLocks userLocks = new StripedLocks(256);
     private static final String LIKE_QUERY = "INSERT INTO film_likes(user_id, film_id) VALUES (?, ?)";
     private static final String DELETE_LIKE_QUERY = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
     private static final String GET_LIKES_QUERY = "SELECT * FROM film_likes WHERE film_id = ?";
+    private static final String GET_LIKES_COUNT_QUERY = "SELECT likes_count FROM films WHERE film_id = ?";
 
     @Override
     public Film likeTheFilm(Film film, Long userId) {
-        jdbcTemplate.update(LIKE_QUERY, userId, film.getId());
-        int likesCount = jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, film.getId());
-        film.setLikesCount(likesCount);
-        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?", film.getId());
-        log.info("Пользователь с id {} поставил лайк фильму с id {}", userId, film.getId());
-
+        boolean added = userLocks.withLock(userId, () -> {
+            try {
+                if (queryMetrics.time("LikeDbStorage.LIKE_QUERY",
+                        () -> jdbcTemplate.update(LIKE_QUERY, userId, film.getId())) != 1) {
+                    return false;
+                }
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            userLikesIndex.addLike(userId, film.getId());
+            return true;
+        });
+        if (added) {
+            likeCounterBuffer.add(film.getId(), 1);
+            film.setLikesCount(changeLikes(film.getId(), 1));
+            contentRevisions.filmChanged(film.getId());
+            log.info("Пользователь с id {} поставил лайк фильму с id {}", userId, film.getId());
+        } else {
+            film.setLikesCount(changeLikes(film.getId(), 0));
+            log.info("Пользователь с id {} уже ставил лайк фильму с id {}", userId, film.getId());
+        }
         return film;
     }
 
     @Override
     public Film deleteLike(Film film, Long userId) {
-        jdbcTemplate.update(DELETE_LIKE_QUERY, userId, film.getId());
-        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", film.getId());
-        log.info("Пользователь с id {} удалил лайк у фильма с id {}", userId, film.getId());
-
+        boolean deleted = userLocks.withLock(userId, () -> {
+            if (queryMetrics.time("LikeDbStorage.DELETE_LIKE_QUERY",
+                    () -> jdbcTemplate.update(DELETE_LIKE_QUERY, userId, film.getId())) != 1) {
+                return false;
+            }
+            userLikesIndex.removeLike(userId, film.getId());
+            return true;
+        });
+        if (deleted) {
+            likeCounterBuffer.add(film.getId(), -1);
+            film.setLikesCount(changeLikes(film.getId(), -1));
+            contentRevisions.filmChanged(film.getId());
+            log.info("Пользователь с id {} удалил лайк у фильма с id {}", userId, film.getId());
+        } else {
+            film.setLikesCount(changeLikes(film.getId(), 0));
+            log.info("Пользователь с id {} не ставил лайк фильму с id {}", userId, film.getId());
+        }
         return film;
     }
 
+    private int changeLikes(Long filmId, int delta) {
+        Integer likesCount = popularFilmsIndex.changeLikes(filmId, delta);
+        if (likesCount == null) {
+            likesCount = queryMetrics.time("LikeDbStorage.GET_LIKES_COUNT_QUERY",
+                    () -> jdbcTemplate.queryForObject(GET_LIKES_COUNT_QUERY, Integer.class, filmId));
+        }
+        return likesCount;
+    }
+
+    @Override
+    public List<Long> getRecommendedFilmIds(Long userId, int limit) {
+        return userLikesIndex.recommend(userId, limit);
+    }
+
     @Override
     public Set<Long> getFilmsLikes(Long id) {
         Set<Long> likes = new HashSet<>();
 
-        SqlRowSet rows = jdbcTemplate.queryForRowSet(GET_LIKES_QUERY, id);
+        SqlRowSet rows = queryMetrics.time("LikeDbStorage.GET_LIKES_QUERY",
+                () -> jdbcTemplate.queryForRowSet(GET_LIKES_QUERY, id));
         while (rows.next()) {
             likes.add(rows.getLong("user_id"));
         }
 
         return likes;
     }
-}
\ No newline at end of file
+}
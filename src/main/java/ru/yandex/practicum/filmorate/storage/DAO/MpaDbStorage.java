@@ -1,43 +1,108 @@
 package ru.yandex.practicum.filmorate.storage.DAO;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.index.ContentRevisions;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class MpaDbStorage implements MpaStorage {
 
     private final JdbcTemplate jdbcTemplate;
-    private static final String GET_MPA_QUERY = "SELECT * FROM mpa";
-    private static final String GET_BY_ID_QUERY = "SELECT * FROM mpa WHERE mpa_id = ?";
+    private final QueryMetrics queryMetrics;
+    private final ContentRevisions contentRevisions;
+    private final long referenceTtlMs;
+    private volatile Map<Integer, Mpa> mpaById = Map.of();
+    private volatile long loadedAt;
+    private static final String GET_MPA_QUERY = "SELECT * FROM mpa ORDER BY mpa_id";
+
+    @Autowired
+    public MpaDbStorage(JdbcTemplate jdbcTemplate, QueryMetrics queryMetrics, ContentRevisions contentRevisions,
+                        @Value("${filmorate.reference.ttl-ms:600000}") long referenceTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryMetrics = queryMetrics;
+        this.contentRevisions = contentRevisions;
+        this.referenceTtlMs = referenceTtlMs;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Integer, Mpa> mpaMap = new LinkedHashMap<>();
+        for (Mpa mpa : queryMetrics.time("MpaDbStorage.GET_MPA_QUERY",
+                () -> jdbcTemplate.query(GET_MPA_QUERY, this::makeMpa))) {
+            mpaMap.put(mpa.getId(), mpa);
+        }
+        if (!mpaMap.equals(mpaById)) {
+            contentRevisions.mpaChanged();
+        }
+        mpaById = Collections.unmodifiableMap(mpaMap);
+        loadedAt = System.currentTimeMillis();
+        log.info("Загружен справочник рейтингов, рейтингов: {}", mpaMap.size());
+    }
 
     @Override
     public Collection<Mpa> getAllMpa() {
-        return jdbcTemplate.query(GET_MPA_QUERY, this::makeMpa);
+        return List.copyOf(getMpa().values());
     }
 
     @Override
     public Mpa getMpaById(int id) {
-        final List<Mpa> mpaList = jdbcTemplate.query(GET_BY_ID_QUERY, this::makeMpa, id);
-        if (mpaList.isEmpty()) {
+        Mpa mpa = getMpa().get(id);
+        if (mpa == null) {
             throw new NotFoundException("MPA райтинг с id = " + id + " не найден");
         }
-        log.info("Получен рейтинг с id = " + id);
-        return mpaList.get(0);
+        log.info("Получен рейтинг с id = {}", id);
+        return mpa;
+    }
+
+    @Override
+    public boolean containsMpa(int id) {
+        return getMpa().containsKey(id);
+    }
+
+    /**
+     * ETag считается после проверки TTL, чтобы истёкший справочник перечитался до сравнения с If-None-Match.
+     */
+    @Override
+    public String getMpaEtag() {
+        getMpa();
+        return contentRevisions.mpaEtag();
+    }
+
+    @Override
+    public String getMpaEtag(int id) {
+        getMpa();
+        return contentRevisions.mpaEtag(id);
+    }
+
+    private Map<Integer, Mpa> getMpa() {
+        if (System.currentTimeMillis() - loadedAt > referenceTtlMs) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > referenceTtlMs) {
+                    reload();
+                }
+            }
+        }
+        return mpaById;
     }
 
     public Mpa makeMpa(ResultSet rs, int rowNum) throws SQLException {
         return new Mpa(rs.getInt("mpa_id"), rs.getString("name"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage.DAO;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Фиксированный набор блокировок, выбираемых по ключу.
+ * Нужен, чтобы запись в базу и обновление индекса в памяти по одному ключу шли в одном порядке.
+ * Используется ReentrantLock, а не synchronized, чтобы ожидание не занимало поток-носитель виртуального потока.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(long key, Supplier<T> action) {
+        ReentrantLock lock = locks[Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), locks.length)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -8,14 +8,25 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.QueryMetrics;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendSuggestions;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @Component
@@ -24,32 +35,35 @@ import java.util.List;
 public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraphIndex friendGraphIndex;
+    private final FriendSuggestions friendSuggestions;
+    private final QueryMetrics queryMetrics;
+    // запись дружбы и обновление FriendGraphIndex идут под блокировкой пользователя, чтобы
+    // одновременные добавление и удаление одной связи применялись к индексу в том же порядке, что и к базе
+    private final StripedLocks userLocks = new StripedLocks(256);
+    private static final int IDS_CHUNK_SIZE = 1000;
     private static final String CREATE_USER_QUERY = "INSERT INTO users(login, email, birthday, name)" +
             "VALUES (?, ?, ?, ?)";
     private static final String GET_ALL_USERS_QUERY = "SELECT * FROM users";
+    private static final String GET_USERS_PAGE_QUERY = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
     private static final String UPDATE_USER_QUERY = "UPDATE users SET login = ?, email = ?, birthday = ?, name = ? WHERE user_id = ?";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE user_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM users WHERE user_id IN (%s)";
+    private static final String EXISTING_IDS_QUERY = "SELECT user_id FROM users WHERE user_id IN (%s)";
     private static final String ADD_FRIEND_QUERY = "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)";
-    private static final String GET_ALL_FRIENDS_QUERY = "SELECT u.* " +
-            "FROM users AS u " +
-            "JOIN friendship AS f ON u.user_id = f.friend_id " +
-            "WHERE f.user_id = ?";
     private static final String DELETE_FRIEND = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
-    private static final String COMMON_FRIENDS_QUERY = "SELECT u.* FROM users u " +
-            "JOIN friendship f1 ON u.user_id = f1.friend_id AND f1.user_id = ? " +
-            "JOIN friendship f2 ON u.user_id = f2.friend_id AND f2.user_id = ? ";
 
     @Override
     public User create(User user) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
+        queryMetrics.time("UserDbStorage.CREATE_USER_QUERY", () -> jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(CREATE_USER_QUERY, new String[]{"user_id"});
             ps.setString(1, user.getLogin());
             ps.setString(2, user.getEmail());
             ps.setDate(3, java.sql.Date.valueOf(user.getBirthday()));
             ps.setString(4, user.getName());
             return ps;
-        }, keyHolder);
+        }, keyHolder));
         user.setId(keyHolder.getKey().longValue());
         log.info("Создан пользователь с id = {}", user.getId());
         return user;
@@ -57,75 +71,176 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public Collection<User> getAllUsers() {
-        return jdbcTemplate.query(GET_ALL_USERS_QUERY, this::makeUser);
+        return queryMetrics.time("UserDbStorage.GET_ALL_USERS_QUERY",
+                () -> jdbcTemplate.query(GET_ALL_USERS_QUERY, this::makeUser));
+    }
+
+    @Override
+    public CursorPage<User> getUsersPage(String after, int limit) {
+        long afterId = 0;
+        if (after != null) {
+            try {
+                afterId = Long.parseLong(after);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Некорректный курсор " + after);
+            }
+        }
+        long from = afterId;
+        List<User> users = queryMetrics.time("UserDbStorage.GET_USERS_PAGE_QUERY",
+                () -> jdbcTemplate.query(GET_USERS_PAGE_QUERY, this::makeUser, from, limit + 1));
+        String nextCursor = null;
+        if (users.size() > limit) {
+            users.remove(limit);
+            nextCursor = String.valueOf(users.get(limit - 1).getId());
+        }
+        log.info("Получена страница из {} пользователей после курсора {}", users.size(), after);
+        return new CursorPage<>(users, nextCursor);
     }
 
     @Override
     public User updateUser(User newUser) {
         User oldUser = findUserById(newUser.getId());
         if (oldUser == null) {
-            log.warn("Пользователь с id = " + newUser.getId() + " не найден");
+            log.warn("Пользователь с id = {} не найден", newUser.getId());
             throw new NotFoundException("Не найден пользователь с id = " + newUser.getId());
         }
-        jdbcTemplate.update(UPDATE_USER_QUERY,
+        queryMetrics.time("UserDbStorage.UPDATE_USER_QUERY", () -> jdbcTemplate.update(UPDATE_USER_QUERY,
                 newUser.getLogin(),
                 newUser.getEmail(),
                 newUser.getBirthday(),
                 newUser.getName(),
-                newUser.getId());
+                newUser.getId()));
         log.info("Обновлен пользователь с id = {}", newUser.getId());
         return newUser;
     }
 
     @Override
     public User findUserById(Long id) {
-        final List<User> users = jdbcTemplate.query(FIND_BY_ID_QUERY, this::makeUser, id);
+        final List<User> users = queryMetrics.time("UserDbStorage.FIND_BY_ID_QUERY",
+                () -> jdbcTemplate.query(FIND_BY_ID_QUERY, this::makeUser, id));
         if (users.size() != 1) {
-            log.warn("Пользователь с id = " + id + " не найден");
+            log.warn("Пользователь с id = {} не найден", id);
             throw new NotFoundException("Не найден пользователь с id = " + id);
         }
         log.info("Найден пользователь с id = {}", id);
         return users.get(0);
     }
 
+    @Override
+    public void checkUsersExist(Long... ids) {
+        Set<Long> existingIds = new HashSet<>(queryMetrics.time("UserDbStorage.EXISTING_IDS_QUERY",
+                () -> jdbcTemplate.queryForList(String.format(EXISTING_IDS_QUERY, placeholders(ids.length)),
+                        Long.class, (Object[]) ids)));
+        for (Long id : ids) {
+            if (!existingIds.contains(id)) {
+                log.warn("Пользователь с id = {} не найден", id);
+                throw new NotFoundException("Не найден пользователь с id = " + id);
+            }
+        }
+    }
+
     @Override
     public User addFriend(Long id, Long otherId) {
-        User user = findUserById(id);
-        User otherUser = findUserById(otherId);
+        User otherUser = findRequiredUsers(id, otherId).get(otherId);
 
-        jdbcTemplate.update(ADD_FRIEND_QUERY, id, otherId);
-        log.info("Теперь мы есть в списке друзей у пользователя = " + otherId);
+        userLocks.withLock(id, () -> {
+            queryMetrics.time("UserDbStorage.ADD_FRIEND_QUERY",
+                    () -> jdbcTemplate.update(ADD_FRIEND_QUERY, id, otherId));
+            friendGraphIndex.addFriend(id, otherId);
+            return null;
+        });
+        friendSuggestions.onFriendshipChanged(id);
+        log.info("Теперь мы есть в списке друзей у пользователя = {}", otherId);
 
         return otherUser;
     }
 
     @Override
     public User deleteFriend(Long id, Long userId) {
-        User user = findUserById(id);
-        User otherUser = findUserById(userId);
-        jdbcTemplate.update(DELETE_FRIEND, id, userId);
+        User otherUser = findRequiredUsers(id, userId).get(userId);
+        userLocks.withLock(id, () -> {
+            queryMetrics.time("UserDbStorage.DELETE_FRIEND", () -> jdbcTemplate.update(DELETE_FRIEND, id, userId));
+            friendGraphIndex.removeFriend(id, userId);
+            return null;
+        });
+        friendSuggestions.onFriendshipChanged(id);
         log.info("У пользователя с id {} больше нет в друзьях пользователя с id {} ", userId, id);
         return otherUser;
     }
 
     @Override
     public Collection<User> getAllFriends(Long id) {
-        User user = findUserById(id);
-        log.info("Получен список друзей пользователя с id " + id);
-        return jdbcTemplate.query(GET_ALL_FRIENDS_QUERY, this::makeUser, id);
+        List<User> friends = findUsersWithRequired(friendGraphIndex.getFriends(id), id);
+        log.info("Получен список друзей пользователя с id {}", id);
+        return friends;
     }
 
     @Override
     public Collection<User> getCommonFriends(Long id, Long otherId) {
-        User user = findUserById(id);
-        User otherUser = findUserById(otherId);
-
-        List<User> friends = jdbcTemplate.query(COMMON_FRIENDS_QUERY, this::makeUser, id, otherId);
+        List<User> friends = findUsersWithRequired(friendGraphIndex.getCommonFriends(id, otherId), id, otherId);
 
         log.info("Получен список общих друзей пользователей с id {} и {} ", id, otherId);
         return friends;
     }
 
+    @Override
+    public Collection<User> getFriendSuggestions(Long id, int limit) {
+        List<User> suggestions = findUsersWithRequired(friendSuggestions.suggest(id, limit), id);
+        log.info("Получено {} рекомендаций друзей для пользователя с id {}", suggestions.size(), id);
+        return suggestions;
+    }
+
+    private List<User> findUsersWithRequired(long[] userIds, Long... requiredIds) {
+        // проверка существования requiredIds идет тем же запросом, что и загрузка пользователей
+        List<Long> ids = new ArrayList<>(userIds.length + requiredIds.length);
+        ids.addAll(List.of(requiredIds));
+        for (long userId : userIds) {
+            ids.add(userId);
+        }
+        Map<Long, User> usersById = findUsersByIds(ids);
+        checkFound(usersById, requiredIds);
+        List<User> users = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private Map<Long, User> findRequiredUsers(Long... ids) {
+        Map<Long, User> users = findUsersByIds(List.of(ids));
+        checkFound(users, ids);
+        return users;
+    }
+
+    private Map<Long, User> findUsersByIds(List<Long> ids) {
+        // у пользователя могут быть десятки тысяч друзей, поэтому IN (...) разбивается на части
+        Map<Long, User> usersById = new HashMap<>(ids.size());
+        for (int from = 0; from < ids.size(); from += IDS_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IDS_CHUNK_SIZE, ids.size()));
+            queryMetrics.time("UserDbStorage.FIND_BY_IDS_QUERY",
+                            () -> jdbcTemplate.query(String.format(FIND_BY_IDS_QUERY, placeholders(chunk.size())),
+                                    this::makeUser, chunk.toArray()))
+                    .forEach(user -> usersById.put(user.getId(), user));
+        }
+        return usersById;
+    }
+
+    private void checkFound(Map<Long, User> users, Long... ids) {
+        for (Long id : ids) {
+            if (!users.containsKey(id)) {
+                log.warn("Пользователь с id = {} не найден", id);
+                throw new NotFoundException("Не найден пользователь с id = " + id);
+            }
+        }
+    }
+
+    private String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
     private User makeUser(ResultSet rs, int rowNum) throws SQLException {
         User user = new User();
         user.setId(rs.getLong("user_id"));
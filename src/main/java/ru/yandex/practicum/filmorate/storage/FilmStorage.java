@@ -1,18 +1,36 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.CacheStatistics;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Collection<Film> getAllFilms();
 
+    CursorPage<Film> getFilmsPage(String after, int limit);
+
+    void exportFilms(Consumer<Film> consumer);
+
     Film updateFilm(Film newFilm);
 
     Film findFilmById(Long id);
 
+    List<Film> findFilmsByIds(List<Long> ids);
+
     Collection<Film> getPopularFilms(int count);
+
+    Collection<Film> getPopularFilms(int count, Integer genreId, Integer year);
+
+    List<Film> searchFilms(String query, boolean byTitle, boolean byDescription, int limit);
+
+    CacheStatistics getCacheStatistics();
 }
\ No newline at end of file
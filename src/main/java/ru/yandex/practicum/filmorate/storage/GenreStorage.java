@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 public interface GenreStorage {
@@ -11,7 +12,13 @@ public interface GenreStorage {
 
     Genre getGenreById(int id);
 
-    public Set<Genre> getFilmGenres(Long id);
+    boolean containsGenre(int id);
+
+    String getGenresEtag();
+
+    String getGenreEtag(int id);
+
+    Map<Long, Set<Genre>> getFilmsGenres(Collection<Long> filmIds);
 
     public String getGenreByName(int id);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.List;
 import java.util.Set;
 
 public interface LikeStorage {
@@ -11,4 +12,6 @@ public interface LikeStorage {
     public Film deleteLike(Film film, Long userId);
 
     public Film likeTheFilm(Film film, Long userId);
+
+    List<Long> getRecommendedFilmIds(Long userId, int limit);
 }
\ No newline at end of file
@@ -9,4 +9,10 @@ public interface MpaStorage {
     Collection<Mpa> getAllMpa();
 
     Mpa getMpaById(int id);
+
+    boolean containsMpa(int id);
+
+    String getMpaEtag();
+
+    String getMpaEtag(int id);
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
@@ -10,10 +11,14 @@ public interface UserStorage {
 
     Collection<User> getAllUsers();
 
+    CursorPage<User> getUsersPage(String after, int limit);
+
     User updateUser(User newUser);
 
     User findUserById(Long id);
 
+    void checkUsersExist(Long... ids);
+
     User addFriend(Long id, Long userId);
 
     User deleteFriend(Long id, Long userId);
@@ -21,4 +26,6 @@ public interface UserStorage {
     Collection<User> getAllFriends(Long id);
 
     Collection<User> getCommonFriends(Long id, Long otherId);
+
+    Collection<User> getFriendSuggestions(Long id, int limit);
 }
\ No newline at end of file
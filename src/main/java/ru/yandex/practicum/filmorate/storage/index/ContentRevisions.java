@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики ревизий для ETag: по каждому фильму, по списку фильмов и по справочникам.
+ * Счетчики живут только в памяти, поэтому в ETag входит время старта приложения:
+ * после перезапуска старые ETag клиентов гарантированно не совпадут.
+ */
+@Component
+public class ContentRevisions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong filmsRevision = new AtomicLong();
+    private final AtomicLong genresRevision = new AtomicLong();
+    private final AtomicLong mpaRevision = new AtomicLong();
+    private final ConcurrentMap<Long, Long> filmRevisions = new ConcurrentHashMap<>();
+
+    public void filmChanged(Long filmId) {
+        filmRevisions.merge(filmId, 1L, Long::sum);
+        filmsRevision.incrementAndGet();
+    }
+
+    public void genresChanged() {
+        genresRevision.incrementAndGet();
+    }
+
+    public void mpaChanged() {
+        mpaRevision.incrementAndGet();
+    }
+
+    public String filmEtag(Long filmId) {
+        return etag("film-" + filmId, filmRevisions.getOrDefault(filmId, 0L));
+    }
+
+    public String filmsEtag() {
+        return etag("films", filmsRevision.get());
+    }
+
+    public String genresEtag() {
+        return etag("genres", genresRevision.get());
+    }
+
+    public String genreEtag(int genreId) {
+        return etag("genre-" + genreId, genresRevision.get());
+    }
+
+    public String mpaEtag() {
+        return etag("mpa", mpaRevision.get());
+    }
+
+    public String mpaEtag(int mpaId) {
+        return etag("mpa-" + mpaId, mpaRevision.get());
+    }
+
+    private String etag(String resource, long revision) {
+        return "\"" + epoch + "-" + resource + "-" + revision + "\"";
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Обратный индекс по словам из названия и описания фильмов.
+ * Слова хранятся в отсортированной карте, поэтому кроме точного совпадения поддерживается поиск по префиксу.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+
+    private static final String LOAD_QUERY = "SELECT film_id, name, description FROM films";
+    private static final String SEPARATORS = "[^\\p{L}\\p{N}]+";
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int TITLE_EXACT_SCORE = 4;
+    private static final int TITLE_PREFIX_SCORE = 3;
+    private static final int DESCRIPTION_EXACT_SCORE = 2;
+    private static final int DESCRIPTION_PREFIX_SCORE = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final NavigableMap<String, Set<Long>> titleIndex = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Set<Long>> descriptionIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, IndexedFilm> indexedFilms = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void reload() {
+        titleIndex.clear();
+        descriptionIndex.clear();
+        indexedFilms.clear();
+        jdbcTemplate.query(LOAD_QUERY, rs -> {
+            addFilm(rs.getLong("film_id"), rs.getString("name"), rs.getString("description"));
+        });
+        log.info("Построен поисковый индекс, фильмов в индексе: {}", indexedFilms.size());
+    }
+
+    public synchronized void addFilm(Long filmId, String name, String description) {
+        IndexedFilm previous = indexedFilms.remove(filmId);
+        if (previous != null) {
+            removePostings(titleIndex, previous.titleTokens(), filmId);
+            removePostings(descriptionIndex, previous.descriptionTokens(), filmId);
+        }
+        IndexedFilm film = new IndexedFilm(tokenize(name), tokenize(description));
+        addPostings(titleIndex, film.titleTokens(), filmId);
+        addPostings(descriptionIndex, film.descriptionTokens(), filmId);
+        indexedFilms.put(filmId, film);
+    }
+
+    public List<Long> search(String query, boolean byTitle, boolean byDescription, int limit) {
+        Set<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> scores = null;
+        for (String token : queryTokens) {
+            Map<Long, Integer> tokenScores = new HashMap<>();
+            if (byTitle) {
+                match(titleIndex, token, TITLE_EXACT_SCORE, TITLE_PREFIX_SCORE, tokenScores);
+            }
+            if (byDescription) {
+                match(descriptionIndex, token, DESCRIPTION_EXACT_SCORE, DESCRIPTION_PREFIX_SCORE, tokenScores);
+            }
+            // фильм должен подходить под каждое слово запроса
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((filmId, score) -> score + tokenScores.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        Comparator<Map.Entry<Long, Integer>> order = Map.Entry.<Long, Integer>comparingByValue().reversed()
+                .thenComparing(entry -> likesOf(entry.getKey()), Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey());
+        return scores.entrySet().stream()
+                .sorted(order)
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private int likesOf(Long filmId) {
+        Integer likes = popularFilmsIndex.getLikes(filmId);
+        return likes == null ? 0 : likes;
+    }
+
+    private static void match(NavigableMap<String, Set<Long>> index, String token, int exactScore, int prefixScore,
+                              Map<Long, Integer> scores) {
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Set<Long>> entry : index.subMap(token, true, token + Character.MAX_VALUE, true)
+                    .entrySet()) {
+                int score = entry.getKey().equals(token) ? exactScore : prefixScore;
+                for (Long filmId : entry.getValue()) {
+                    scores.merge(filmId, score, Math::max);
+                }
+            }
+        } else {
+            Set<Long> filmIds = index.get(token);
+            if (filmIds != null) {
+                for (Long filmId : filmIds) {
+                    scores.merge(filmId, exactScore, Math::max);
+                }
+            }
+        }
+    }
+
+    private static void addPostings(NavigableMap<String, Set<Long>> index, Set<String> tokens, Long filmId) {
+        for (String token : tokens) {
+            index.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(filmId);
+        }
+    }
+
+    private static void removePostings(NavigableMap<String, Set<Long>> index, Set<String> tokens, Long filmId) {
+        for (String token : tokens) {
+            index.computeIfPresent(token, (t, filmIds) -> {
+                filmIds.remove(filmId);
+                return filmIds.isEmpty() ? null : filmIds;
+            });
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split(SEPARATORS))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private record IndexedFilm(Set<String> titleTokens, Set<String> descriptionTokens) {
+    }
+}
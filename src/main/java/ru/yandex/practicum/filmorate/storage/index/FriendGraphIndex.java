@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Списки друзей всех пользователей в памяти в виде отсортированных массивов id.
+ * Массивы не изменяются после публикации: при добавлении или удалении друга массив пересоздается.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+@RequiredArgsConstructor
+public class FriendGraphIndex {
+
+    private static final String LOAD_QUERY = "SELECT user_id, friend_id FROM friendship ORDER BY user_id, friend_id";
+    private static final long[] EMPTY = SortedLongArrays.EMPTY;
+    private static final int BINARY_SEARCH_RATIO = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<Long, long[]> friendsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, long[]> followersByUser = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void reload() {
+        friendsByUser.clear();
+        followersByUser.clear();
+        FriendsCollector collector = new FriendsCollector();
+        jdbcTemplate.query(LOAD_QUERY, rs -> {
+            collector.add(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+        collector.finish();
+        friendsByUser.forEach((userId, friends) -> {
+            for (long friendId : friends) {
+                addTo(followersByUser, friendId, userId);
+            }
+        });
+        log.info("Загружен граф друзей, пользователей с друзьями: {}", friendsByUser.size());
+    }
+
+    public long[] getFriends(Long userId) {
+        return friendsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public long[] getFollowers(Long userId) {
+        return followersByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public long[] getCommonFriends(Long userId, Long otherId) {
+        long[] smaller = getFriends(userId);
+        long[] larger = getFriends(otherId);
+        if (smaller.length > larger.length) {
+            long[] tmp = smaller;
+            smaller = larger;
+            larger = tmp;
+        }
+        long[] common = new long[smaller.length];
+        int size = 0;
+        if (larger.length / BINARY_SEARCH_RATIO > smaller.length) {
+            for (long friendId : smaller) {
+                if (Arrays.binarySearch(larger, friendId) >= 0) {
+                    common[size++] = friendId;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                } else if (smaller[i] > larger[j]) {
+                    j++;
+                } else {
+                    common[size++] = smaller[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    public void addFriend(Long userId, Long friendId) {
+        addTo(friendsByUser, userId, friendId);
+        addTo(followersByUser, friendId, userId);
+    }
+
+    public void removeFriend(Long userId, Long friendId) {
+        removeFrom(friendsByUser, userId, friendId);
+        removeFrom(followersByUser, friendId, userId);
+    }
+
+    private static void addTo(ConcurrentMap<Long, long[]> index, long key, long value) {
+        index.compute(key, (id, values) -> SortedLongArrays.insert(values == null ? EMPTY : values, value));
+    }
+
+    private static void removeFrom(ConcurrentMap<Long, long[]> index, long key, long value) {
+        index.computeIfPresent(key, (id, values) -> {
+            long[] updated = SortedLongArrays.remove(values, value);
+            return updated.length == 0 ? null : updated;
+        });
+    }
+
+    private class FriendsCollector {
+
+        private long currentUserId = -1;
+        private long[] friends = new long[16];
+        private int size;
+
+        void add(long userId, long friendId) {
+            if (userId != currentUserId) {
+                finish();
+                currentUserId = userId;
+            }
+            if (size == friends.length) {
+                friends = Arrays.copyOf(friends, size * 2);
+            }
+            friends[size++] = friendId;
+        }
+
+        void finish() {
+            if (size > 0) {
+                friendsByUser.put(currentUserId, Arrays.copyOf(friends, size));
+                size = 0;
+            }
+        }
+    }
+}
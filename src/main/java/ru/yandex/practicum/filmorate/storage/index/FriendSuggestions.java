@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Рекомендации друзей по числу общих друзей. Обход графа ограничен двумя шагами и числом просмотренных связей,
+ * результат кэшируется для каждого пользователя и сбрасывается при изменении его друзей или друзей его друзей.
+ */
+@Component
+public class FriendSuggestions implements MeterBinder {
+
+    private static final Comparator<Map.Entry<Long, Integer>> RANK =
+            Comparator.<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                    .thenComparingLong(Map.Entry::getKey);
+
+    private final FriendGraphIndex friendGraphIndex;
+    private final int maxEdges;
+    private final int cacheDepth;
+    private final Cache<Long, long[]> cache;
+
+    @Autowired
+    public FriendSuggestions(FriendGraphIndex friendGraphIndex,
+                             @Value("${filmorate.friends.suggestions.max-edges:200000}") int maxEdges,
+                             @Value("${filmorate.friends.suggestions.cache-depth:50}") int cacheDepth,
+                             @Value("${filmorate.friends.suggestions.cache-size:10000}") long cacheSize) {
+        this.friendGraphIndex = friendGraphIndex;
+        this.maxEdges = maxEdges;
+        this.cacheDepth = cacheDepth;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+    }
+
+    public long[] suggest(Long userId, int limit) {
+        if (limit > cacheDepth) {
+            return compute(userId, limit);
+        }
+        long[] suggestions = cache.get(userId, id -> compute(id, cacheDepth));
+        return suggestions.length > limit ? Arrays.copyOf(suggestions, limit) : suggestions;
+    }
+
+    public void onFriendshipChanged(Long userId) {
+        cache.invalidate(userId);
+        for (long followerId : friendGraphIndex.getFollowers(userId)) {
+            cache.invalidate(followerId);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "friend-suggestions");
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private long[] compute(Long userId, int limit) {
+        long[] friends = friendGraphIndex.getFriends(userId);
+        Map<Long, Integer> mutualFriends = new HashMap<>();
+        int budget = maxEdges;
+        scan:
+        for (long friendId : friends) {
+            for (long candidateId : friendGraphIndex.getFriends(friendId)) {
+                if (budget-- == 0) {
+                    break scan;
+                }
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    mutualFriends.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(RANK.reversed());
+        for (Map.Entry<Long, Integer> candidate : mutualFriends.entrySet()) {
+            top.offer(candidate);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        long[] suggestions = new long[top.size()];
+        for (int i = suggestions.length - 1; i >= 0; i--) {
+            suggestions[i] = top.poll().getKey();
+        }
+        return suggestions;
+    }
+}
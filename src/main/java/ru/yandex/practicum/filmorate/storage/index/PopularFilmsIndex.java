@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который хранится в памяти.
+ * Порядок совпадает с GET_POPULAR_QUERY: likes_count по убыванию, затем film_id по возрастанию.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class PopularFilmsIndex {
+
+    private static final String LOAD_QUERY = "SELECT film_id, likes_count FROM films";
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int depth;
+    private final ConcurrentMap<Long, Integer> likesByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    @Autowired
+    public PopularFilmsIndex(JdbcTemplate jdbcTemplate, @Value("${filmorate.popular.depth:1000}") int depth) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.depth = depth;
+    }
+
+    @PostConstruct
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            likesByFilm.clear();
+            ranking.clear();
+            jdbcTemplate.query(LOAD_QUERY, rs -> {
+                long filmId = rs.getLong("film_id");
+                int likes = rs.getInt("likes_count");
+                likesByFilm.put(filmId, likes);
+                ranking.add(new Entry(filmId, likes));
+            });
+            loaded = true;
+            log.info("Загружен рейтинг популярных фильмов, фильмов в рейтинге: {}", likesByFilm.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean canServe(int count) {
+        return loaded && count <= depth;
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        List<Long> filmIds = new ArrayList<>(count);
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (filmIds.size() == count) {
+                break;
+            }
+            // во время обновления фильм может на мгновение оказаться в рейтинге дважды
+            if (seen.add(entry.filmId())) {
+                filmIds.add(entry.filmId());
+            }
+        }
+        return filmIds;
+    }
+
+    public void addFilm(Long filmId, int likes) {
+        lock.readLock().lock();
+        try {
+            likesByFilm.compute(filmId, (id, oldLikes) -> {
+                if (oldLikes != null) {
+                    ranking.remove(new Entry(id, oldLikes));
+                }
+                ranking.add(new Entry(id, likes));
+                return likes;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Integer getLikes(Long filmId) {
+        return likesByFilm.get(filmId);
+    }
+
+    public Integer changeLikes(Long filmId, int delta) {
+        if (delta == 0) {
+            return getLikes(filmId);
+        }
+        lock.readLock().lock();
+        try {
+            return likesByFilm.computeIfPresent(filmId, (id, oldLikes) -> {
+                int newLikes = oldLikes + delta;
+                ranking.add(new Entry(id, newLikes));
+                ranking.remove(new Entry(id, oldLikes));
+                return newLikes;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Entry(long filmId, int likes) {
+    }
+}
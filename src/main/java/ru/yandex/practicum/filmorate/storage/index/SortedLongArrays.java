@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+
+final class SortedLongArrays {
+
+    static final long[] EMPTY = new long[0];
+
+    private SortedLongArrays() {
+    }
+
+    static long[] insert(long[] values, long value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        long[] updated = new long[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, position);
+        updated[position] = value;
+        System.arraycopy(values, position, updated, position + 1, values.length - position);
+        return updated;
+    }
+
+    static long[] remove(long[] values, long value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        long[] updated = new long[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, position);
+        System.arraycopy(values, position + 1, updated, position, values.length - position - 1);
+        return updated;
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Лайки пользователей в памяти в виде отсортированных массивов id фильмов.
+ * По ним подбираются фильмы, которые понравились пользователям с наиболее похожими лайками.
+ * Похожие пользователи ищутся только среди тех, кто лайкнул хотя бы один общий фильм;
+ * при равном числе общих лайков выбирается пользователь с меньшим id.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class UserLikesIndex {
+
+    private static final String LOAD_QUERY = "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
+    private static final Comparator<Similarity> MOST_SIMILAR = Comparator.comparingInt(Similarity::overlap).reversed()
+            .thenComparingLong(Similarity::userId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int similarUsers;
+    private final ConcurrentMap<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Long>> usersByFilm = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserLikesIndex(JdbcTemplate jdbcTemplate,
+                          @Value("${filmorate.recommendations.similar-users:10}") int similarUsers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.similarUsers = similarUsers;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        filmsByUser.clear();
+        usersByFilm.clear();
+        Map<Long, List<Long>> likes = new HashMap<>();
+        jdbcTemplate.query(LOAD_QUERY, rs -> {
+            long userId = rs.getLong("user_id");
+            long filmId = rs.getLong("film_id");
+            likes.computeIfAbsent(userId, id -> new ArrayList<>()).add(filmId);
+            usersByFilm.computeIfAbsent(filmId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        });
+        likes.forEach((userId, films) -> filmsByUser.put(userId,
+                films.stream().mapToLong(Long::longValue).toArray()));
+        log.info("Загружены лайки пользователей, пользователей с лайками: {}", filmsByUser.size());
+    }
+
+    public void addLike(Long userId, Long filmId) {
+        filmsByUser.compute(userId, (id, films) ->
+                SortedLongArrays.insert(films == null ? SortedLongArrays.EMPTY : films, filmId));
+        usersByFilm.computeIfAbsent(filmId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+    }
+
+    public void removeLike(Long userId, Long filmId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> {
+            long[] updated = SortedLongArrays.remove(films, filmId);
+            return updated.length == 0 ? null : updated;
+        });
+        usersByFilm.computeIfPresent(filmId, (id, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    public List<Long> recommend(Long userId, int limit) {
+        long[] liked = filmsByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+        if (liked.length == 0) {
+            return List.of();
+        }
+        Map<Long, Integer> overlaps = new HashMap<>();
+        for (long filmId : liked) {
+            for (Long otherId : usersByFilm.getOrDefault(filmId, Set.of())) {
+                if (!otherId.equals(userId)) {
+                    overlaps.merge(otherId, 1, Integer::sum);
+                }
+            }
+        }
+        // в куче наверху наименее похожий из отобранных, его и вытесняем
+        PriorityQueue<Similarity> similar = new PriorityQueue<>(MOST_SIMILAR.reversed());
+        overlaps.forEach((otherId, overlap) -> {
+            long[] films = filmsByUser.get(otherId);
+            if (films == null || films.length <= overlap) {
+                return;
+            }
+            similar.add(new Similarity(otherId, films, overlap));
+            if (similar.size() > similarUsers) {
+                similar.poll();
+            }
+        });
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Similarity similarity : similar) {
+            for (long filmId : similarity.films()) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, similarity.overlap(), Integer::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private record Similarity(long userId, long[] films, int overlap) {
+    }
+}
@@ -50,4 +50,10 @@ ALTER TABLE films ADD FOREIGN KEY (mpa_id) REFERENCES mpa (mpa_id);
 
 ALTER TABLE friendship ADD FOREIGN KEY (user_id) REFERENCES users (user_id);
 
-ALTER TABLE friendship ADD FOREIGN KEY (friend_id) REFERENCES users (user_id);
\ No newline at end of file
+ALTER TABLE friendship ADD FOREIGN KEY (friend_id) REFERENCES users (user_id);
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, film_id);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (releaseDate);
+
+CREATE INDEX IF NOT EXISTS film_genre_genre_idx ON film_genre (genre_id, film_id);
\ No newline at end of file
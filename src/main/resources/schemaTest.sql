@@ -53,6 +53,12 @@ ALTER TABLE friendship ADD FOREIGN KEY (user_id) REFERENCES users (user_id);
 
 ALTER TABLE friendship ADD FOREIGN KEY (friend_id) REFERENCES users (user_id);
 
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, film_id);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (releaseDate);
+
+CREATE INDEX IF NOT EXISTS film_genre_genre_idx ON film_genre (genre_id, film_id);
+
 INSERT INTO mpa (name) VALUES ('G');
 INSERT INTO mpa (name) VALUES ('PG');
 INSERT INTO mpa (name) VALUES ('PG-13');
@@ -1,12 +1,16 @@
 package ru.yandex.practicum.filmorate.daoTests;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
@@ -14,16 +18,32 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.GenreService;
 import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.PopularResponseCache;
+import ru.yandex.practicum.filmorate.storage.DAO.FilmCache;
 import ru.yandex.practicum.filmorate.storage.DAO.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAO.LikeCounterBuffer;
 import ru.yandex.practicum.filmorate.storage.DAO.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -38,6 +58,13 @@ public class FilmDbStorageTests {
     private final FilmService filmService;
     private final GenreService genreService;
     private final LikeStorage likeStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final FilmCache filmCache;
+    private final UserLikesIndex userLikesIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final MeterRegistry meterRegistry;
+    private final PopularResponseCache popularResponseCache;
     private Film film1;
     private Film film2;
     private Film film3;
@@ -49,6 +76,11 @@ public class FilmDbStorageTests {
 
     @BeforeEach
     public void setUp() {
+        likeCounterBuffer.clear();
+        popularFilmsIndex.reload();
+        filmCache.invalidateAll();
+        userLikesIndex.reload();
+        filmSearchIndex.reload();
         mpa = mpaService.getMpaById(1);
         mpa2 = mpaService.getMpaById(2);
         Genre genre = genreService.getGenreById(1);
@@ -109,6 +141,17 @@ public class FilmDbStorageTests {
         assertTrue(film.getName().equals("Film1"));
     }
 
+    @Test
+    public void shouldReturnCachedFilmWithCurrentLikes() {
+        filmDbStorage.findFilmById(1L);
+        filmService.likeTheFilm(1L, 1L);
+
+        Film film = filmDbStorage.findFilmById(1L);
+
+        assertEquals(1, film.getLikesCount());
+        assertTrue(filmCache.getStatistics().getHitCount() > 0);
+    }
+
     @Test
     public void shouldGetAllFilms() {
         Collection<Film> films = filmService.getAllFilms();
@@ -119,6 +162,141 @@ public class FilmDbStorageTests {
         assertTrue(films.size() == 3);
     }
 
+    @Test
+    public void shouldGetFilmsPage() {
+        filmService.likeTheFilm(3L, 1L);
+        likeCounterBuffer.flush();
+
+        CursorPage<Film> firstPage = filmService.getFilmsPage(null, 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals(3L, firstPage.getItems().get(0).getId());
+        assertEquals(1L, firstPage.getItems().get(1).getId());
+        assertEquals("0:1", firstPage.getNextCursor());
+
+        CursorPage<Film> secondPage = filmService.getFilmsPage(firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals(2L, secondPage.getItems().get(0).getId());
+        assertEquals(null, secondPage.getNextCursor());
+    }
+
+    @Test
+    public void shouldExportFilms() {
+        List<Film> films = new ArrayList<>();
+
+        filmService.exportFilms(films::add);
+
+        assertEquals(3, films.size());
+        assertEquals(1L, films.get(0).getId());
+        assertEquals(2, films.get(0).getGenres().size());
+    }
+
+    @Test
+    public void shouldCreateFilmsInBatch() {
+        Film film4 = new Film();
+        film4.setName("Film4");
+        film4.setDescription("Description4");
+        film4.setReleaseDate(LocalDate.of(2021, 1, 1));
+        film4.setDuration(400);
+        film4.setMpa(mpa2);
+        film4.setGenres(Set.of(genreService.getGenreById(3)));
+        Film film5 = new Film();
+        film5.setName("Film5");
+        film5.setDescription("Description5");
+        film5.setReleaseDate(LocalDate.of(2022, 1, 1));
+        film5.setDuration(500);
+        film5.setMpa(mpa);
+
+        List<Film> created = filmService.createAll(List.of(film4, film5));
+
+        assertEquals(4L, created.get(0).getId());
+        assertEquals(5L, created.get(1).getId());
+        assertEquals(1, filmDbStorage.findFilmById(4L).getGenres().size());
+        assertEquals(5, filmService.getAllFilms().size());
+    }
+
+    @Test
+    public void shouldSearchFilms() {
+        filmService.likeTheFilm(3L, 1L);
+
+        List<Film> byPrefix = filmService.searchFilms("fil", "title", 10);
+        List<Film> byWord = filmService.searchFilms("Film2", "title,description", 10);
+        List<Film> byDescription = filmService.searchFilms("description1", "title", 10);
+
+        assertEquals(3, byPrefix.size());
+        assertEquals(3L, byPrefix.get(0).getId());
+        assertEquals(1, byWord.size());
+        assertEquals(2L, byWord.get(0).getId());
+        assertEquals(0, byDescription.size());
+    }
+
+    @Test
+    public void shouldRecordQueryTimers() {
+        filmDbStorage.getPopularFilms(5000);
+
+        assertTrue(meterRegistry.get("filmorate.db.query")
+                .tag("query", "FilmDbStorage.GET_POPULAR_QUERY").timer().count() > 0);
+    }
+
+    @Test
+    public void shouldChangeEtagsOnLike() {
+        String filmEtag = filmService.getFilmEtag(1L);
+        String otherFilmEtag = filmService.getFilmEtag(2L);
+        String filmsEtag = filmService.getFilmsEtag();
+
+        filmService.likeTheFilm(1L, 1L);
+
+        assertNotEquals(filmEtag, filmService.getFilmEtag(1L));
+        assertNotEquals(filmsEtag, filmService.getFilmsEtag());
+        assertEquals(otherFilmEtag, filmService.getFilmEtag(2L));
+    }
+
+    @Test
+    public void shouldServeSerializedPopularFilms() {
+        PopularResponseCache.CachedResponse first = popularResponseCache.get(3, null, null);
+        PopularResponseCache.CachedResponse second = popularResponseCache.get(3, null, null);
+
+        String json = new String(first.json(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("Film1") && json.contains("Film3"));
+        assertEquals(filmService.getFilmsEtag(), first.etag());
+        assertSame(first, second);
+        assertTrue(first.gzipped().length > 0);
+        assertNotEquals(first.etag(), first.gzipEtag());
+        assertNotSame(popularResponseCache.get(1001, null, null), popularResponseCache.get(1001, null, null));
+        assertNotSame(popularResponseCache.get(3, 99, null), popularResponseCache.get(3, 99, null));
+        assertNotSame(popularResponseCache.get(3, null, 1500), popularResponseCache.get(3, null, 1500));
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldCoalescePopularLoadsInStorage() throws Exception {
+        List<Long> expected = filmDbStorage.getPopularFilms(3).stream().map(Film::getId).toList();
+        Counter loads = meterRegistry.get("filmorate.singleflight.loads").tag("name", "popular").counter();
+        Counter coalesced = meterRegistry.get("filmorate.singleflight.coalesced").tag("name", "popular").counter();
+        double before = loads.count() + coalesced.count();
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Collection<Film>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return filmDbStorage.getPopularFilms(3);
+                }));
+            }
+            start.countDown();
+            for (Future<Collection<Film>> result : results) {
+                assertEquals(expected, result.get(5, TimeUnit.SECONDS).stream().map(Film::getId).toList());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(before + callers, loads.count() + coalesced.count());
+    }
+
     @Test
     public void shouldUpdateFilm() {
         Film newFilm = new Film();
@@ -156,6 +334,61 @@ public class FilmDbStorageTests {
                 .getLikesCount() == 0);
     }
 
+    @Test
+    public void shouldIgnoreRepeatedLikeAndMissingLike() {
+        filmService.likeTheFilm(1L, 1L);
+        Film film = filmService.likeTheFilm(1L, 1L);
+
+        assertEquals(1, film.getLikesCount());
+        assertEquals(1, likeStorage.getFilmsLikes(1L).size());
+
+        filmService.deleteLike(1L, 1L);
+        film = filmService.deleteLike(1L, 1L);
+
+        assertEquals(0, film.getLikesCount());
+        assertEquals(0, filmDbStorage.findFilmById(1L).getLikesCount());
+    }
+
+    @Test
+    public void shouldFlushLikesCount() {
+        filmService.likeTheFilm(1L, 1L);
+        filmService.likeTheFilm(1L, 2L);
+
+        assertEquals(2, filmDbStorage.findFilmById(1L).getLikesCount());
+
+        likeCounterBuffer.flush();
+
+        popularFilmsIndex.reload();
+        assertEquals(2, popularFilmsIndex.getLikes(1L));
+        assertEquals(2, filmDbStorage.findFilmById(1L).getLikesCount());
+    }
+
+    @Test
+    public void shouldReconcileLikesCountLostBeforeFlush() {
+        filmService.likeTheFilm(1L, 1L);
+        filmService.likeTheFilm(1L, 2L);
+        likeCounterBuffer.clear();
+
+        likeCounterBuffer.reconcile();
+
+        assertEquals(2, popularFilmsIndex.getLikes(1L));
+        popularFilmsIndex.reload();
+        assertEquals(2, popularFilmsIndex.getLikes(1L));
+    }
+
+    @Test
+    public void shouldRecommendFilmsLikedBySimilarUsers() {
+        filmService.likeTheFilm(1L, 1L);
+        filmService.likeTheFilm(2L, 1L);
+        filmService.likeTheFilm(1L, 2L);
+        filmService.likeTheFilm(3L, 3L);
+
+        List<Film> recommendations = filmService.getRecommendations(2L, 10);
+
+        assertEquals(1, recommendations.size());
+        assertEquals(2L, recommendations.get(0).getId());
+    }
+
     @Test
     public void shouldGetPopularFilms() {
             filmService.likeTheFilm(1L, 1L);
@@ -172,4 +405,48 @@ public class FilmDbStorageTests {
         assertEquals(2L, popularFilms.get(0).getId());
         assertEquals(1L, popularFilms.get(1).getId());
     }
+
+    @Test
+    public void shouldGetPopularFilmsByGenreAndYear() {
+        filmService.likeTheFilm(2L, 1L);
+        filmService.likeTheFilm(3L, 1L);
+        filmService.likeTheFilm(3L, 2L);
+        likeCounterBuffer.flush();
+
+        List<Film> byGenre = (List<Film>) filmService.getPopularFilms(10, 2, null);
+        List<Film> byYear = (List<Film>) filmService.getPopularFilms(10, null, 2020);
+        List<Film> byGenreAndYear = (List<Film>) filmService.getPopularFilms(10, 1, 2021);
+
+        assertEquals(1, byGenre.size());
+        assertEquals(1L, byGenre.get(0).getId());
+        assertEquals(3, byYear.size());
+        assertEquals(3L, byYear.get(0).getId());
+        assertEquals(2L, byYear.get(1).getId());
+        assertEquals(0, byGenreAndYear.size());
+    }
+
+    @Test
+    public void shouldUseIndexesForFilteredPopularFilms() {
+        String byGenre = filmDbStorage.explainPopularFilms(10, 2, null).toUpperCase();
+        String byYear = filmDbStorage.explainPopularFilms(10, null, 2020).toUpperCase();
+
+        assertTrue(byGenre.contains("FILM_GENRE_GENRE_IDX"), byGenre);
+        assertTrue(byYear.contains("FILMS_RELEASE_DATE_IDX"), byYear);
+    }
+
+    @Test
+    public void shouldGetPopularFilmsAfterDeleteLike() {
+        filmService.likeTheFilm(1L, 1L);
+        filmService.likeTheFilm(2L, 1L);
+        filmService.likeTheFilm(2L, 2L);
+        filmService.deleteLike(2L, 1L);
+        filmService.deleteLike(2L, 2L);
+
+        List<Film> popularFilms = (List<Film>) filmService.getPopularFilms(2);
+
+        assertEquals(2, popularFilms.size());
+        assertEquals(1L, popularFilms.get(0).getId());
+        assertEquals(2L, popularFilms.get(1).getId());
+        assertEquals(2, popularFilms.get(0).getGenres().size());
+    }
 }
\ No newline at end of file
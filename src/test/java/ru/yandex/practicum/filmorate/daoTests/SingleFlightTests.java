@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.daoTests;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.DAO.SingleFlight;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+public class SingleFlightTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, Object> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    public void shouldCoalesceConcurrentLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return new Object();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                return new Object();
+            }));
+            while (coalesced() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldPassLoaderExceptionToWaiters() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> singleFlight.load(1L, () -> {
+                loading.countDown();
+                await(release);
+                throw new NotFoundException("Не найден фильм с id = 1");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(() -> singleFlight.load(1L, Object::new));
+            while (coalesced() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            ExecutionException firstError = assertThrows(ExecutionException.class,
+                    () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException secondError = assertThrows(ExecutionException.class,
+                    () -> second.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NotFoundException.class, firstError.getCause());
+            assertInstanceOf(NotFoundException.class, secondError.getCause());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldLoadAgainAfterCompletion() {
+        Object first = singleFlight.load(1L, Object::new);
+        Object second = singleFlight.load(1L, Object::new);
+
+        assertNotSame(first, second);
+        assertEquals(2, meterRegistry.get("filmorate.singleflight.loads").tag("name", "test").counter().count());
+        assertEquals(0, coalesced());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("filmorate.singleflight.coalesced").tag("name", "test").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -8,9 +8,13 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.DAO.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendSuggestions;
 
 import java.time.LocalDate;
 import java.util.Collection;
@@ -25,12 +29,16 @@ public class UserDbStorageTests {
 
     private final UserDbStorage userDbStorage;
     private final UserService userService;
+    private final FriendGraphIndex friendGraphIndex;
+    private final FriendSuggestions friendSuggestions;
     private User user1;
     private User user2;
     private User user3;
 
     @BeforeEach
     public void setUp() {
+        friendGraphIndex.reload();
+        friendSuggestions.invalidateAll();
         user1 = new User();
         user1.setLogin("login");
         user1.setName("name");
@@ -68,6 +76,20 @@ public class UserDbStorageTests {
         assertTrue(users.size() == 3);
     }
 
+    @Test
+    public void shouldGetUsersPage() {
+        CursorPage<User> firstPage = userService.getUsersPage(null, 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals("2", firstPage.getNextCursor());
+
+        CursorPage<User> secondPage = userService.getUsersPage(firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals(3L, secondPage.getItems().get(0).getId());
+        assertNull(secondPage.getNextCursor());
+    }
+
     @Test
     public void shouldUpdateUser() {
         User newUser = new User();
@@ -98,6 +120,13 @@ public class UserDbStorageTests {
         assertTrue(userService.getAllFriends(2L).contains(user1));
     }
 
+    @Test
+    public void shouldNotAddFriendWhenUserNotFound() {
+        assertThrows(NotFoundException.class, () -> userService.addFriend(1L, 99L));
+        assertThrows(NotFoundException.class, () -> userService.getCommonFriends(99L, 1L));
+        assertEquals(0, userService.getAllFriends(1L).size());
+    }
+
     @Test
     public void shouldDeleteFriend() {
         userService.addFriend(1L, 2L);
@@ -124,6 +153,22 @@ public class UserDbStorageTests {
         assertTrue(friends.contains(user2));
     }
 
+    @Test
+    public void shouldGetFriendsAcrossSeveralIdChunks() {
+        int friendsCount = 1500;
+        for (int i = 0; i < friendsCount; i++) {
+            User friend = new User();
+            friend.setLogin("friend" + i);
+            friend.setName("friend" + i);
+            friend.setEmail("friend" + i + "@example.com");
+            friend.setBirthday(LocalDate.of(1999, 9, 15));
+            userDbStorage.create(friend);
+            userDbStorage.addFriend(1L, friend.getId());
+        }
+
+        assertEquals(friendsCount, userService.getAllFriends(1L).size());
+    }
+
     @Test
     public void shouldGetCommonFriends() {
         userService.addFriend(1L, 2L);
@@ -139,4 +184,22 @@ public class UserDbStorageTests {
         assertTrue(commonFriends.size() == 1);
         assertTrue(commonFriends.contains(user3));
     }
+
+    @Test
+    public void shouldSuggestFriendsOfFriends() {
+        userService.addFriend(1L, 2L);
+
+        assertEquals(0, userService.getFriendSuggestions(1L, 10).size());
+
+        userService.addFriend(2L, 3L);
+
+        Collection<User> suggestions = userService.getFriendSuggestions(1L, 10);
+
+        assertEquals(1, suggestions.size());
+        assertTrue(suggestions.contains(user3));
+
+        userService.addFriend(1L, 3L);
+
+        assertEquals(0, userService.getFriendSuggestions(1L, 10).size());
+    }
 }
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.daoTests;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UserLikesIndexTests {
+
+    private final UserLikesIndex userLikesIndex = new UserLikesIndex(null, 1);
+
+    @Test
+    public void shouldPickSimilarUserWithLowerIdOnTie() {
+        userLikesIndex.addLike(1L, 1L);
+        userLikesIndex.addLike(1L, 2L);
+        userLikesIndex.addLike(3L, 1L);
+        userLikesIndex.addLike(3L, 4L);
+        userLikesIndex.addLike(2L, 1L);
+        userLikesIndex.addLike(2L, 3L);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(List.of(3L), userLikesIndex.recommend(1L, 10));
+        }
+    }
+
+    @Test
+    public void shouldPreferUserWithMoreCommonLikes() {
+        userLikesIndex.addLike(1L, 1L);
+        userLikesIndex.addLike(1L, 2L);
+        userLikesIndex.addLike(2L, 1L);
+        userLikesIndex.addLike(2L, 3L);
+        userLikesIndex.addLike(3L, 1L);
+        userLikesIndex.addLike(3L, 2L);
+        userLikesIndex.addLike(3L, 4L);
+        userLikesIndex.addLike(4L, 5L);
+
+        assertEquals(List.of(4L), userLikesIndex.recommend(1L, 10));
+    }
+
+    @Test
+    public void shouldForgetRemovedLikes() {
+        userLikesIndex.addLike(1L, 1L);
+        userLikesIndex.addLike(2L, 1L);
+        userLikesIndex.addLike(2L, 2L);
+        userLikesIndex.removeLike(2L, 1L);
+
+        assertEquals(List.of(), userLikesIndex.recommend(1L, 10));
+    }
+}